@@ -0,0 +1,172 @@
+package gitlet;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmarks of the main Gitlet commands on a repository built by
+ *  RepoGenerator in the current directory.  Each command runs as it does
+ *  from the command line, taking the repository lock and committing its
+ *  own transaction, but without starting a JVM.  Commands that change the
+ *  repository are given fresh work, outside the measured time, before
+ *  each call: add a rewritten file, commit a staged one, check out or
+ *  merge a branch from master reset to where it was built.  Output the
+ *  commands print is discarded.  Run with "make run" in the benchmarks
+ *  directory, which writes the results as JSON.
+ *  @author Andrew Kaplan */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitletBenchmark {
+
+    /** Number of files in the repository. */
+    @Param({"100", "1000"})
+    public int files;
+
+    /** Approximate bytes in each file. */
+    @Param({"1024"})
+    public int fileSize;
+
+    /** Commits made after the first. */
+    @Param({"10", "100"})
+    public int depth;
+
+    /** Branches, master among them. */
+    @Param({"2", "8"})
+    public int branches;
+
+    /** Seed for the generated contents. */
+    @Param({"61"})
+    public long seed;
+
+    /** Build the repository and silence the standard output. */
+    @Setup(Level.Trial)
+    public void buildRepository() {
+        _generator = new RepoGenerator(files, fileSize, branches, depth,
+                seed);
+        _generator.generate();
+        _masterID = Refs.read("master").pointer();
+        _stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /** Restore the standard output. */
+    @TearDown(Level.Trial)
+    public void restoreOutput() {
+        System.setOut(_stdout);
+    }
+
+    /** Stage one rewritten file. */
+    @Benchmark
+    public void add(Rewritten rewritten) {
+        RepoGenerator.run("add", rewritten.fileName());
+    }
+
+    /** Commit one staged file. */
+    @Benchmark
+    public void commit(Staged staged) {
+        RepoGenerator.run("commit", "Benchmark commit");
+    }
+
+    /** Print the status of the working directory. */
+    @Benchmark
+    public void status() {
+        RepoGenerator.runReadOnly("status");
+    }
+
+    /** Print the history of master. */
+    @Benchmark
+    public void log() {
+        RepoGenerator.runReadOnly("log");
+    }
+
+    /** Print the last 20 commits of master. */
+    @Benchmark
+    public void logRecent() {
+        RepoGenerator.runReadOnly("log", "-n", "20");
+    }
+
+    /** Switch from master to the last branch. */
+    @Benchmark
+    public void checkoutBranch(Restored restored) {
+        RepoGenerator.run("checkout", RepoGenerator.branchName(branches - 1));
+        _onMaster = false;
+    }
+
+    /** Merge the last branch into master. */
+    @Benchmark
+    public void merge(Restored restored) {
+        RepoGenerator.run("merge", RepoGenerator.branchName(branches - 1));
+    }
+
+    /** Before each add: a tracked file rewritten. */
+    @State(Scope.Thread)
+    public static class Rewritten {
+        /** Rewrite the next of the files of BENCH. */
+        @Setup(Level.Invocation)
+        public void rewrite(GitletBenchmark bench) {
+            _next = (_next + 1) % bench.files;
+            bench._generator.writeFile(_next);
+        }
+
+        /** Return the name of the file last rewritten. */
+        String fileName() {
+            return RepoGenerator.fileName(_next);
+        }
+
+        /** The number of the file last rewritten. */
+        private int _next;
+    }
+
+    /** Before each commit: a rewritten file staged. */
+    @State(Scope.Thread)
+    public static class Staged {
+        /** Stage the file REWRITTEN has just rewritten. */
+        @Setup(Level.Invocation)
+        public void stage(Rewritten rewritten) {
+            RepoGenerator.run("add", rewritten.fileName());
+        }
+    }
+
+    /** Before each checkout and merge: master back where it started, with
+     *  nothing staged. */
+    @State(Scope.Thread)
+    public static class Restored {
+        /** Reset master, the branch checked out, to where BENCH built
+         *  it. */
+        @Setup(Level.Invocation)
+        public void restore(GitletBenchmark bench) {
+            if (!bench._onMaster) {
+                RepoGenerator.run("checkout", "master");
+                bench._onMaster = true;
+            }
+            RepoGenerator.run("reset", bench._masterID);
+        }
+    }
+
+    /** Makes the repository and the files the benchmarks change. */
+    private RepoGenerator _generator;
+    /** The commit master pointed at when the repository was built. */
+    private String _masterID;
+    /** True while master is checked out. */
+    private boolean _onMaster = true;
+    /** The standard output, while it is silenced. */
+    private PrintStream _stdout;
+}
@@ -0,0 +1,205 @@
+package gitlet;
+
+import java.io.File;
+import java.util.Random;
+
+import static gitlet.Utils.*;
+
+/** Builds a synthetic Gitlet repository in the current directory for the
+ *  benchmarks, through the same commands a user would run.  The
+ *  repository has FILES text files of about FILESIZE bytes, BRANCHES
+ *  branches (master among them), and DEPTH commits after the first,
+ *  made in turn on each branch, each rewriting a few files or, if asked,
+ *  now and then merging another branch.  The same parameters and seed
+ *  always give the same files and history, up to commit times.
+ *  @author Andrew Kaplan */
+class RepoGenerator {
+
+    /** Name of the file marking a directory the generator may empty. */
+    static final String MARKER = ".gitlet-bench";
+
+    /** A generator of repositories with FILES files of FILESIZE bytes,
+     *  BRANCHES branches and DEPTH commits, choosing contents with
+     *  SEED. */
+    RepoGenerator(int files, int fileSize, int branches, int depth,
+                  long seed) {
+        this(files, fileSize, branches, depth, 0, seed);
+    }
+
+    /** A generator of repositories with FILES files of FILESIZE bytes,
+     *  BRANCHES branches and DEPTH commits, every MERGEEVERY'th of which
+     *  (none if it is 0) merges another branch instead of editing files,
+     *  choosing contents and branches with SEED. */
+    RepoGenerator(int files, int fileSize, int branches, int depth,
+                  int mergeEvery, long seed) {
+        if (files < 1 || fileSize < 1 || branches < 1 || depth < 0
+                || mergeEvery < 0) {
+            throw new IllegalArgumentException("bad repository shape");
+        }
+        _files = files;
+        _fileSize = fileSize;
+        _branches = branches;
+        _depth = depth;
+        _mergeEvery = branches > 1 ? mergeEvery : 0;
+        _random = new Random(seed);
+    }
+
+    /** Empty the current directory, which must hold MARKER, and build the
+     *  repository in it, leaving master checked out. */
+    void generate() {
+        clear();
+        new Repository();
+        _session = Session.open();
+        try {
+            for (int k = 0; k < _files; k += 1) {
+                writeFile(k);
+                command("add", fileName(k));
+            }
+            command("commit", "Add " + _files + " files");
+            for (int b = 1; b < _branches; b += 1) {
+                command("branch", branchName(b));
+            }
+            int edits = Math.max(1, _files / EDIT_FRACTION);
+            int current = 0;
+            for (int c = 1; c <= _depth; c += 1) {
+                int next = (c - 1) % _branches;
+                if (next != current) {
+                    command("checkout", branchName(next));
+                    current = next;
+                }
+                if (_mergeEvery > 0 && c % _mergeEvery == 0) {
+                    int other = (current + 1
+                                 + _random.nextInt(_branches - 1)) % _branches;
+                    command("merge", branchName(other));
+                    continue;
+                }
+                for (int e = 0; e < edits; e += 1) {
+                    int k = _random.nextInt(_files);
+                    writeFile(k);
+                    command("add", fileName(k));
+                }
+                command("commit", "Edit " + edits + " files, " + c);
+            }
+            if (current != 0) {
+                command("checkout", branchName(0));
+            }
+        } finally {
+            _session.close();
+            _session = null;
+        }
+    }
+
+    /** Run the command ARGS in the generator's session, starting a new
+     *  session now and then so that the one open never holds much. */
+    private void command(String... args) {
+        _session.run(args);
+        _commands += 1;
+        if (_commands % SESSION_COMMANDS == 0) {
+            _session.close();
+            _session = Session.open();
+        }
+    }
+
+    /** Run the command ARGS as Main would, in its own transaction. */
+    static void run(String... args) {
+        try (Session session = Session.open()) {
+            session.run(args);
+        }
+    }
+
+    /** Run the read-only command ARGS as Main would, sharing the lock. */
+    @SuppressWarnings("try")
+    static void runReadOnly(String... args) {
+        try (RepositoryLock lock = RepositoryLock.acquire(true)) {
+            Main.execute(args);
+        }
+    }
+
+    /** Rewrite the file numbered K with new random contents. */
+    void writeFile(int k) {
+        writeContents(join(Repository.CWD, fileName(k)), text(_fileSize));
+    }
+
+    /** Return the number of files. */
+    int files() {
+        return _files;
+    }
+
+    /** Return the name of the file numbered K. */
+    static String fileName(int k) {
+        return String.format("f%06d.txt", k);
+    }
+
+    /** Return the name of the branch numbered B; branch 0 is master. */
+    static String branchName(int b) {
+        return b == 0 ? "master" : "branch" + b;
+    }
+
+    /** Return SIZE bytes of random lines of text. */
+    private String text(int size) {
+        StringBuilder text = new StringBuilder(size + LINE_LENGTH);
+        while (text.length() < size) {
+            for (int i = 0; i < LINE_LENGTH - 1; i += 1) {
+                text.append((char) ('a' + _random.nextInt(ALPHABET)));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    /** Delete everything in the current directory but MARKER, refusing
+     *  if MARKER is missing. */
+    private static void clear() {
+        File cwd = Repository.CWD.toPath().toAbsolutePath().normalize()
+            .toFile();
+        if (!join(cwd, MARKER).isFile()) {
+            throw new IllegalStateException("refusing to empty " + cwd
+                    + ", which has no " + MARKER + " file");
+        }
+        File[] entries = cwd.listFiles();
+        if (entries != null) {
+            for (File entry : entries) {
+                if (!entry.getName().equals(MARKER)) {
+                    delete(entry);
+                }
+            }
+        }
+    }
+
+    /** Delete FILE and, if it is a directory, everything in it. */
+    private static void delete(File file) {
+        File[] entries = file.listFiles();
+        if (entries != null) {
+            for (File entry : entries) {
+                delete(entry);
+            }
+        }
+        file.delete();
+    }
+
+    /** Commands run in one session before it is closed. */
+    private static final int SESSION_COMMANDS = 1000;
+    /** One file in this many is rewritten by each commit. */
+    private static final int EDIT_FRACTION = 100;
+    /** Characters in a line, including its newline. */
+    private static final int LINE_LENGTH = 64;
+    /** Letters used in file contents. */
+    private static final int ALPHABET = 26;
+
+    /** Number of files. */
+    private final int _files;
+    /** Approximate bytes in each file. */
+    private final int _fileSize;
+    /** Number of branches. */
+    private final int _branches;
+    /** Number of commits after the first. */
+    private final int _depth;
+    /** Every this many commits is a merge; 0 for none. */
+    private final int _mergeEvery;
+    /** The session running the generator's commands. */
+    private Session _session;
+    /** Number of commands the generator has run. */
+    private int _commands;
+    /** Source of file contents and of which files change. */
+    private final Random _random;
+}
@@ -0,0 +1,315 @@
+package gitlet;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Times each main Gitlet command on generated repositories of growing
+ *  size, and estimates how its time grows with that size.  One dimension
+ *  of the repository (files, depth or branches) takes each of a list of
+ *  sizes while the others stay fixed; for each size a repository is
+ *  built by RepoGenerator in the current directory, which must hold its
+ *  marker file, and each command is timed REPS times in this JVM, after
+ *  one untimed run, keeping the median.  The report gives, for each
+ *  command, its times and the exponent K of the best fit of
+ *  time ~ size^K on a log-log scale: about 0 for constant, 1 for linear,
+ *  2 for quadratic.
+ *
+ *  Usage: java gitlet.ScalingHarness [--vary files|depth|branches]
+ *             [--sizes N,N,...] [--files N] [--file-size N] [--depth N]
+ *             [--branches N] [--merge-every N] [--seed N] [--reps N]
+ *             [--json FILE]
+ *  @author Andrew Kaplan */
+public class ScalingHarness {
+
+    /** Untimed runs of each command before it is timed. */
+    private static final int WARMUP = 1;
+
+    /** Commands timed, in the order reported. */
+    static final String[] COMMANDS = {
+        "add", "commit", "status", "log", "global-log", "find", "diff",
+        "checkout", "merge"
+    };
+
+    /** Run the harness with the options ARGS. */
+    public static void main(String... args) {
+        ScalingHarness harness = new ScalingHarness(args);
+        harness.run();
+    }
+
+    /** A harness configured by the command-line options ARGS. */
+    ScalingHarness(String[] args) {
+        for (int k = 0; k < args.length; k += 2) {
+            if (k + 1 == args.length) {
+                usage("missing value for " + args[k]);
+            }
+            String value = args[k + 1];
+            switch (args[k]) {
+            case "--vary":
+                if (!Arrays.asList("files", "depth", "branches")
+                        .contains(value)) {
+                    usage("cannot vary " + value);
+                }
+                _vary = value;
+                break;
+            case "--sizes":
+                _sizes = Arrays.stream(value.split(","))
+                    .mapToInt(ScalingHarness::number).toArray();
+                break;
+            case "--files":
+                _files = number(value);
+                break;
+            case "--file-size":
+                _fileSize = number(value);
+                break;
+            case "--depth":
+                _depth = number(value);
+                break;
+            case "--branches":
+                _branches = number(value);
+                break;
+            case "--merge-every":
+                _mergeEvery = number(value);
+                break;
+            case "--seed":
+                _seed = number(value);
+                break;
+            case "--reps":
+                _reps = number(value);
+                break;
+            case "--json":
+                _json = value;
+                break;
+            default:
+                usage("unknown option " + args[k]);
+            }
+        }
+        if (_sizes.length < 2) {
+            usage("need at least two sizes");
+        } else if (_reps < 1) {
+            usage("need at least one repetition");
+        }
+    }
+
+    /** Time every command at every size and print the report. */
+    void run() {
+        PrintStream stdout = System.out;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+        for (int size : _sizes) {
+            stdout.printf("%s = %d: generating...", _vary, size);
+            stdout.flush();
+            System.setOut(quiet);
+            long start = System.nanoTime();
+            RepoGenerator generator = generator(size);
+            generator.generate();
+            double built = millis(System.nanoTime() - start);
+            for (String command : COMMANDS) {
+                _times.computeIfAbsent(command, c -> new ArrayList<>())
+                    .add(time(command, generator));
+            }
+            System.setOut(stdout);
+            stdout.printf(" %.0f ms; timed.%n", built);
+        }
+        report(stdout);
+        if (_json != null) {
+            writeJson();
+        }
+    }
+
+    /** Return a generator of a repository whose varied dimension is
+     *  SIZE. */
+    private RepoGenerator generator(int size) {
+        return new RepoGenerator(_vary.equals("files") ? size : _files,
+                _fileSize, _vary.equals("branches") ? size : _branches,
+                _vary.equals("depth") ? size : _depth, _mergeEvery, _seed);
+    }
+
+    /** Return the median time, in milliseconds, of _reps runs of COMMAND
+     *  on the repository GENERATOR built, which is left as it was. */
+    private double time(String command, RepoGenerator generator) {
+        String masterID = Refs.read("master").pointer();
+        String other = RepoGenerator.branchName(
+                Math.max(1, Refs.names().size() - 1));
+        double[] times = new double[_reps];
+        for (int r = -WARMUP; r < _reps; r += 1) {
+            int file = Math.floorMod(r, generator.files());
+            String fileName = RepoGenerator.fileName(file);
+            switch (command) {
+            case "add":
+                generator.writeFile(file);
+                break;
+            case "commit":
+                generator.writeFile(file);
+                RepoGenerator.run("add", fileName);
+                break;
+            default:
+                break;
+            }
+            long start = System.nanoTime();
+            switch (command) {
+            case "add":
+                RepoGenerator.run("add", fileName);
+                break;
+            case "commit":
+                RepoGenerator.run("commit", "Timed commit " + r);
+                break;
+            case "find":
+                RepoGenerator.runReadOnly("find", "initial commit");
+                break;
+            case "checkout":
+            case "merge":
+                if (!Refs.exists(other)) {
+                    return Double.NaN;
+                }
+                RepoGenerator.run(command, other);
+                break;
+            default:
+                RepoGenerator.runReadOnly(command);
+                break;
+            }
+            if (r >= 0) {
+                times[r] = millis(System.nanoTime() - start);
+            }
+            switch (command) {
+            case "checkout":
+                RepoGenerator.run("checkout", "master");
+                RepoGenerator.run("reset", masterID);
+                break;
+            case "add":
+            case "commit":
+            case "merge":
+                RepoGenerator.run("reset", masterID);
+                break;
+            default:
+                break;
+            }
+        }
+        Arrays.sort(times);
+        return times[_reps / 2];
+    }
+
+    /** Print the times of each command and its growth exponent to
+     *  OUT. */
+    private void report(PrintStream out) {
+        out.println();
+        out.printf("%-11s", "command");
+        for (int size : _sizes) {
+            out.printf(" %10s", _vary + "=" + size);
+        }
+        out.printf(" %8s%n", "~size^K");
+        for (String command : COMMANDS) {
+            out.printf("%-11s", command);
+            for (double time : _times.get(command)) {
+                out.printf(" %8.2fms", time);
+            }
+            out.printf(" %8.2f%n", exponent(_times.get(command)));
+        }
+    }
+
+    /** Return the slope of the least-squares line through the points
+     *  (log size, log time) of TIMES, or NaN if there are too few. */
+    private double exponent(ArrayList<Double> times) {
+        double n = 0, sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (int k = 0; k < _sizes.length; k += 1) {
+            double time = times.get(k);
+            if (Double.isNaN(time) || time <= 0) {
+                continue;
+            }
+            double x = Math.log(_sizes[k]), y = Math.log(time);
+            n += 1;
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+        }
+        double denominator = n * sumXX - sumX * sumX;
+        if (n < 2 || denominator == 0) {
+            return Double.NaN;
+        }
+        return (n * sumXY - sumX * sumY) / denominator;
+    }
+
+    /** Write one JSON object per command to _json, with its times and
+     *  growth exponent. */
+    private void writeJson() {
+        try (PrintWriter out = new PrintWriter(new FileWriter(_json))) {
+            for (Map.Entry<String, ArrayList<Double>> entry
+                     : _times.entrySet()) {
+                StringBuilder times = new StringBuilder();
+                for (double time : entry.getValue()) {
+                    times.append(times.length() == 0 ? "" : ",")
+                        .append(Double.isNaN(time) ? "null"
+                                : String.format("%.3f", time));
+                }
+                double k = exponent(entry.getValue());
+                out.printf("{\"command\":\"%s\",\"vary\":\"%s\","
+                        + "\"sizes\":%s,\"millis\":[%s],\"exponent\":%s}%n",
+                        entry.getKey(), _vary,
+                        Arrays.toString(_sizes).replace(" ", ""), times,
+                        Double.isNaN(k) ? "null" : String.format("%.3f", k));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return NANOS nanoseconds in milliseconds. */
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /** Return VALUE as a number of at least 0, or exit with a usage
+     *  message. */
+    private static int number(String value) {
+        try {
+            int result = Integer.parseInt(value);
+            if (result >= 0) {
+                return result;
+            }
+        } catch (NumberFormatException excp) {
+            /* Reported below. */
+        }
+        usage("not a number: " + value);
+        return 0;
+    }
+
+    /** Print PROBLEM and the usage, and exit. */
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: java gitlet.ScalingHarness"
+                + " [--vary files|depth|branches] [--sizes N,N,...]"
+                + " [--files N] [--file-size N] [--depth N] [--branches N]"
+                + " [--merge-every N] [--seed N] [--reps N] [--json FILE]");
+        System.exit(1);
+    }
+
+    /** The dimension of the repository that varies. */
+    private String _vary = "files";
+    /** The sizes it takes. */
+    private int[] _sizes = {100, 1000, 10000};
+    /** Number of files, unless varied. */
+    private int _files = 1000;
+    /** Approximate bytes in each file. */
+    private int _fileSize = 1024;
+    /** Commits after the first, unless varied. */
+    private int _depth = 100;
+    /** Number of branches, unless varied. */
+    private int _branches = 4;
+    /** Every this many commits is a merge; 0 for none. */
+    private int _mergeEvery = 10;
+    /** Seed for the generated contents. */
+    private long _seed = 61;
+    /** Times each command is run at each size. */
+    private int _reps = 5;
+    /** File to write JSON results to, or null. */
+    private String _json;
+    /** The median times of each command at each size, in order. */
+    private final LinkedHashMap<String, ArrayList<Double>> _times =
+        new LinkedHashMap<>();
+}
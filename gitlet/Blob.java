@@ -1,35 +1,133 @@
 package gitlet;
 import static gitlet.Utils.*;
-import java.io.Serializable;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
 
-/** Represents the contents of a file in the working directory.
+/** Represents the contents of a file in the working directory.  A Blob
+ *  is named by its contents alone: the path of a file is kept only in
+ *  the Commit and StagingArea maps, so the same contents under several
+ *  names, or a renamed file, share one Blob, and a Blob never changes
+ *  once written.  Files of
+ *  CHUNK_THRESHOLD bytes or more are not held in the Blob: they are cut
+ *  into content-defined chunks (see Chunker), each stored once in
+ *  Repository.CHUNKS under its SHA-1, and the Blob lists the chunks in
+ *  order.  Versions of a large file that differ by small edits share
+ *  most of their chunks.  Blobs stored before blobs were named by
+ *  contents alone still carry a file name, which their ID includes; see
+ *  matches.
  * @author Andrew Kaplan */
 class Blob implements Serializable {
 
+    /** Unchanged from before chunking and from when blobs held their
+     *  file name and removal mark, so existing blobs still read. */
+    private static final long serialVersionUID = 3333277591861983563L;
+
+    /** Size from which files are stored as chunks. */
+    static final long CHUNK_THRESHOLD = 1 << 20;
+
+    /** Blob Constructor.
+     * @param file : File object to be represented by BLob */
+    Blob(File file) {
+        this(file, false);
+    }
+
     /** Blob Constructor.
      * @param file : File object to be represented by BLob
-     * @param fileName : Name of File object */
-    Blob(File file, String fileName) {
-        _fileContents = readContentsAsString(file);
-        _fileName = fileName;
-        _rm = false;
-        _shaCode = sha1(_fileName + _fileContents);
+     * @param store : Whether to store chunks of a large FILE that are not
+     *                already in the repository */
+    Blob(File file, boolean store) {
+        _fileName = null;
+        if (file.length() < CHUNK_THRESHOLD) {
+            _fileContents = readContentsAsString(file);
+            _chunks = null;
+            _shaCode = sha1(_fileContents);
+            return;
+        }
+        _fileContents = null;
+        MessageDigest whole = sha1Digest();
+        ArrayList<String> chunks = new ArrayList<>();
+        try (InputStream in =
+                 new BufferedInputStream(new FileInputStream(file))) {
+            Chunker chunker = new Chunker(in);
+            for (byte[] chunk = chunker.next(); chunk != null;
+                 chunk = chunker.next()) {
+                whole.update(chunk);
+                String chunkSha = sha1((Object) chunk);
+                if (store) {
+                    storeChunk(chunkSha, chunk);
+                }
+                chunks.add(chunkSha);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _chunks = chunks.toArray(new String[0]);
+        _shaCode = hex(whole.digest());
     }
 
-    /** Return _fileContents. */
+    /** Return _fileContents, gathered from the chunks of a large file. */
     String fileContents() {
-        return _fileContents;
+        if (_chunks == null) {
+            return _fileContents;
+        }
+        ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        try {
+            copyChunks(contents);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return new String(contents.toByteArray(), StandardCharsets.UTF_8);
     }
 
-    /** Return _fileName. */
-    String fileName() {
-        return _fileName;
+    /** Write the file contents to FILE.  A large file is copied from its
+     *  chunk files with FileChannel.transferTo, which lets the operating
+     *  system move the bytes (with copy_file_range or sendfile where it
+     *  can) without their passing through the Java heap. */
+    void writeTo(File file) {
+        if (_chunks == null) {
+            writeContents(file, _fileContents);
+            return;
+        }
+        if (Journal.active()) {
+            Journal.save(file);
+        }
+        long start = Trace.begin();
+        try (FileChannel out = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (String chunkSha : _chunks) {
+                try (FileChannel in = FileChannel.open(
+                        join(Repository.CHUNKS, chunkSha).toPath())) {
+                    long size = in.size();
+                    for (long done = 0; done < size;) {
+                        done += in.transferTo(done, size - done, out);
+                    }
+                    Trace.written(size);
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Trace.end(Trace.Phase.WRITE, start);
     }
 
-    /** Return RM status.  */
-    Boolean rm() {
-        return _rm;
+    /** Return the SHA-1s of the chunks of a large file, in order, or null
+     *  if the contents are held in the Blob. */
+    String[] chunks() {
+        return _chunks;
     }
 
     /** Return shaCode. */
@@ -37,17 +135,93 @@ class Blob implements Serializable {
         return _shaCode;
     }
 
-    /** Mark blob for removal. */
-    void changeRmStatus() {
-        _rm = !_rm;
+    /** Return true if the stored blob BLOBSHA, which may be null, holds
+     *  the same contents as B, a blob made from a working file.  The IDs
+     *  settle it, except for a blob stored before blobs were named by
+     *  contents alone: its ID includes its file name, so its contents are
+     *  compared instead. */
+    static boolean matches(String blobSha, Blob b) {
+        if (blobSha == null || b.shaCode().equals(blobSha)) {
+            return blobSha != null;
+        }
+        File blobFile = join(Repository.OBJECTS, blobSha);
+        if (!blobFile.isFile()) {
+            return false;
+        }
+        Blob stored = readObject(blobFile, Blob.class);
+        return stored._fileName != null
+            && Objects.equals(stored._fileContents, b._fileContents)
+            && Arrays.equals(stored._chunks, b._chunks);
+    }
+
+    /** Return true if this is a blob stored before blobs were named by
+     *  contents alone that rm marked for removal.  Such marks are now
+     *  kept in the StagingArea. */
+    boolean removalMarked() {
+        return _rm;
     }
 
-    /** String instance representation of the file contents. */
+    /** Return true if the file contents, wherever they are held, still
+     *  hash to shaCode, taking in the file name of an old blob as its ID
+     *  did.  A missing chunk counts as damage. */
+    boolean intact() {
+        String prefix = _fileName == null ? "" : _fileName;
+        if (_chunks == null) {
+            return sha1(prefix + _fileContents).equals(_shaCode);
+        }
+        MessageDigest whole = sha1Digest();
+        whole.update(prefix.getBytes(StandardCharsets.UTF_8));
+        for (String chunkSha : _chunks) {
+            File chunkFile = join(Repository.CHUNKS, chunkSha);
+            if (!chunkFile.isFile()) {
+                return false;
+            }
+            whole.update(readContents(chunkFile));
+        }
+        return hex(whole.digest()).equals(_shaCode);
+    }
+
+    /** Store this Blob in Repository.OBJECTS under its shaCode, unless
+     *  the same contents are stored there already. */
+    void store() {
+        File blobFile = join(Repository.OBJECTS, _shaCode);
+        if (!blobFile.exists()) {
+            writeObject(blobFile, this);
+        }
+    }
+
+    /** Write each chunk of the file to OUT, in order. */
+    private void copyChunks(OutputStream out) throws IOException {
+        for (String chunkSha : _chunks) {
+            out.write(readContents(join(Repository.CHUNKS, chunkSha)));
+        }
+    }
+
+    /** Store CHUNK, whose SHA-1 is CHUNKSHA, unless it is already
+     *  stored. */
+    private static void storeChunk(String chunkSha, byte[] chunk) {
+        File chunkFile = join(Repository.CHUNKS, chunkSha);
+        if (chunkFile.exists()) {
+            return;
+        }
+        Repository.CHUNKS.mkdir();
+        if (Journal.active()) {
+            Journal.write(chunkFile, chunk);
+        } else {
+            atomicWriteContents(chunkFile, chunk);
+        }
+    }
+
+    /** String instance representation of the file contents, or null if
+     *  they are held in chunks. */
     private final String _fileContents;
-    /** File name instance. */
-    private final String _fileName;
+    /** SHA-1s of the chunks holding the file contents, or null. */
+    private final String[] _chunks;
     /** ShaCode instance. */
     private final String _shaCode;
-    /** Boolean instance, tracks removal status. */
+    /** File name in blobs stored before blobs were named by contents
+     *  alone, where it is part of the ID; null in later blobs. */
+    private final String _fileName;
+    /** Removal mark rm set in such old blobs; false in later ones. */
     private boolean _rm;
 }
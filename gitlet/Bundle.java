@@ -0,0 +1,408 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.PriorityQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** A single compressed file carrying the history of one branch that a
+ *  receiving repository lacks, for moving commits between repositories
+ *  that share no filesystem.  A bundle names a base commit, which the
+ *  receiver must already have, and holds every chunk, blob and commit
+ *  reachable from the branch but not from the base, in that order and
+ *  with commits parents first, so that unbundling can check and store
+ *  each one as soon as it is read.
+ *  @author Andrew Kaplan */
+class Bundle {
+
+    /** First line of every bundle. */
+    private static final String MAGIC = "gitlet bundle 1";
+    /** Entry tag: a chunk of a large file. */
+    private static final byte CHUNK = 'K';
+    /** Entry tag: a blob. */
+    private static final byte BLOB = 'B';
+    /** Entry tag: a commit. */
+    private static final byte COMMIT = 'C';
+    /** Entry tag: the end of the bundle. */
+    private static final byte END = 'E';
+
+    /** Handle calls to bundle create from Repository: write the history
+     *  of a branch that a base commit lacks into a file.
+     * @param args include create [file] [branch],
+     *             create [file] [branch] [base] */
+    static void create(String[] args) {
+        if (args.length < 4 || args.length > 5
+                || !args[1].equals("create")) {
+            throw new GitletException("Incorrect operands.");
+        }
+        File file = new File(args[2]);
+        String branchName = args[3];
+        Branch branch = Refs.read(branchName);
+        if (branch == null) {
+            throw new GitletException
+            ("A branch with that name does not exist.");
+        }
+        String baseID = args.length == 5 ? Refs.resolve(args[4]) : "";
+
+        HashSet<String> boundary = new HashSet<>();
+        ArrayList<Commit> commits = new ArrayList<>();
+        for (String commitID : missing(branch.pointer(), baseID, boundary)) {
+            commits.add(readObject(join(COMMITS, commitID), Commit.class));
+        }
+        Collections.reverse(commits);
+        HashSet<String> hadBlobs = new HashSet<>();
+        for (String commitID : boundary) {
+            Commit commit = readObject(join(COMMITS, commitID), Commit.class);
+            hadBlobs.addAll(commit.data().values());
+        }
+        LinkedHashSet<String> blobs = new LinkedHashSet<>();
+        for (Commit commit : commits) {
+            for (String blobSha : commit.data().values()) {
+                if (!hadBlobs.contains(blobSha)) {
+                    blobs.add(blobSha);
+                }
+            }
+        }
+        LinkedHashSet<String> chunks = chunks(blobs);
+        chunks.removeAll(chunks(hadBlobs));
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new GZIPOutputStream(
+                        new FileOutputStream(file))))) {
+            out.writeUTF(MAGIC);
+            out.writeUTF(branchName);
+            out.writeUTF(branch.pointer());
+            out.writeUTF(baseID);
+            for (String chunkSha : chunks) {
+                entry(out, CHUNK, join(CHUNKS, chunkSha));
+            }
+            for (String blobSha : blobs) {
+                entry(out, BLOB, join(OBJECTS, blobSha));
+            }
+            for (Commit commit : commits) {
+                entry(out, COMMIT, join(COMMITS, commit.shaCode()));
+            }
+            out.writeByte(END);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        System.out.println("Bundled " + commits.size() + " commits, "
+                + blobs.size() + " blobs and " + chunks.size() + " chunks.");
+    }
+
+    /** Handle calls to unbundle from Repository: check and store the
+     *  contents of a bundle, then point a branch at its tip.
+     * @param args include [file], [file] [branch] */
+    static void unbundle(String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            throw new GitletException("Incorrect operands.");
+        }
+        File file = new File(args[1]);
+        if (!file.isFile()) {
+            throw new GitletException("Bundle does not exist.");
+        }
+        int commits = 0, blobs = 0, chunks = 0;
+        String branchName, tipID;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(
+                        new FileInputStream(file))))) {
+            if (!in.readUTF().equals(MAGIC)) {
+                throw new GitletException("Not a Gitlet bundle.");
+            }
+            String bundled = in.readUTF();
+            branchName = args.length == 3 ? args[2] : bundled;
+            tipID = in.readUTF();
+            String baseID = in.readUTF();
+            if (!baseID.isEmpty() && !join(COMMITS, baseID).isFile()) {
+                throw error("Bundle needs commit %s, which is missing.",
+                        baseID);
+            }
+            for (byte tag = in.readByte(); tag != END; tag = in.readByte()) {
+                String name = in.readUTF();
+                byte[] contents = new byte[in.readInt()];
+                in.readFully(contents);
+                switch (tag) {
+                case CHUNK:
+                    checkChunk(name, contents);
+                    chunks += store(join(CHUNKS, name), contents);
+                    break;
+                case BLOB:
+                    checkBlob(name, contents);
+                    blobs += store(join(OBJECTS, name), contents);
+                    break;
+                case COMMIT:
+                    checkCommit(name, contents);
+                    commits += store(join(COMMITS, name), contents);
+                    break;
+                default:
+                    throw new GitletException("Bundle is damaged.");
+                }
+            }
+        } catch (EOFException excp) {
+            throw new GitletException("Bundle is truncated.");
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (!join(COMMITS, tipID).isFile()) {
+            throw new GitletException("Bundle is damaged.");
+        }
+        updateBranch(branchName, tipID, "unbundle: " + file.getName());
+        System.out.println("Unbundled " + commits + " commits, " + blobs
+                + " blobs and " + chunks + " chunks into " + branchName
+                + ".");
+    }
+
+    /** Point the branch BRANCHNAME at TIPID, creating it if needed, and
+     *  recording REASON in its reflog.  An existing branch must be an
+     *  ancestor of TIPID, and not the current branch, whose files would
+     *  no longer match it. */
+    static void updateBranch(String branchName, String tipID,
+                             String reason) {
+        Branch branch = Refs.read(branchName);
+        if (branch == null) {
+            Refs.write(new Branch(branchName, tipID));
+            Reflog.record(branchName, Reflog.NO_COMMIT, tipID, reason);
+            return;
+        }
+        if (branch.pointer().equals(tipID)) {
+            return;
+        }
+        if (readObject(HEAD, Branch.class).getBranch().equals(branchName)) {
+            throw new GitletException
+            ("Cannot update the current branch.");
+        }
+        if (!reachable(tipID, new HashSet<>()).contains(branch.pointer())) {
+            throw error("Branch %s has diverged; not updating it.",
+                    branchName);
+        }
+        Reflog.record(branchName, branch.pointer(), tipID, reason);
+        branch.updatePointer(tipID);
+        Refs.write(branch);
+    }
+
+    /** Return the IDs of TIPID and those of its ancestors not reached
+     *  through a member of STOP or a graft point, children before
+     *  parents.  An empty TIPID has no commits. */
+    static LinkedHashSet<String> reachable(String tipID,
+                                           HashSet<String> stop) {
+        Shallow shallow = Shallow.load();
+        LinkedHashSet<String> result = new LinkedHashSet<>();
+        ArrayDeque<String> pending = new ArrayDeque<>();
+        pending.push(tipID);
+        while (!pending.isEmpty()) {
+            String commitID = pending.pop();
+            if (commitID.isEmpty() || stop.contains(commitID)
+                    || !result.add(commitID)) {
+                continue;
+            }
+            Commit commit = readObject(join(COMMITS, commitID), Commit.class);
+            ArrayList<String> parents = shallow.parents(commit);
+            for (int k = parents.size() - 1; k >= 0; k -= 1) {
+                pending.push(parents.get(k));
+            }
+        }
+        return order(result);
+    }
+
+    /** Return the IDs of TIPID and those of its ancestors that BASEID
+     *  (empty for none) does not reach, children before parents, and add
+     *  to BOUNDARY BASEID and the commits it reaches that are parents of
+     *  those.  Both histories are walked together, newest commit first,
+     *  and the walk ends once every commit left to visit is reachable
+     *  from BASEID, so the base history older than where the two meet is
+     *  never read.  Of commits made in the same second, those BASEID
+     *  reaches come first.  A commit dated after a child of it may be
+     *  taken as missing, which only makes the bundle larger. */
+    private static LinkedHashSet<String> missing(String tipID, String baseID,
+                                                 HashSet<String> boundary) {
+        Shallow shallow = Shallow.load();
+        HashMap<String, Commit> read = new HashMap<>();
+        HashMap<String, Long> times = new HashMap<>();
+        HashMap<String, Boolean> based = new HashMap<>();
+        PriorityQueue<String> pending = new PriorityQueue<>(
+                Comparator.comparing((String id) -> times.get(id))
+                .thenComparing(based::get).reversed());
+        for (String commitID : new String[] {tipID, baseID}) {
+            if (!commitID.isEmpty() && !based.containsKey(commitID)) {
+                Commit commit =
+                    readObject(join(COMMITS, commitID), Commit.class);
+                read.put(commitID, commit);
+                times.put(commitID, commit.time());
+                pending.add(commitID);
+            }
+            based.put(commitID, commitID.equals(baseID));
+        }
+        LinkedHashSet<String> result = new LinkedHashSet<>();
+        while (pending.stream().anyMatch(commitID -> !based.get(commitID))) {
+            String commitID = pending.poll();
+            boolean fromBase = based.get(commitID);
+            if (!fromBase) {
+                result.add(commitID);
+            }
+            for (String parentID : shallow.parents(read.get(commitID))) {
+                if (!based.containsKey(parentID)) {
+                    Commit parent =
+                        readObject(join(COMMITS, parentID), Commit.class);
+                    read.put(parentID, parent);
+                    times.put(parentID, parent.time());
+                    pending.add(parentID);
+                    based.put(parentID, fromBase);
+                } else if (fromBase && !based.get(parentID)) {
+                    boolean queued = pending.remove(parentID);
+                    based.put(parentID, true);
+                    if (queued) {
+                        pending.add(parentID);
+                    }
+                }
+            }
+        }
+        result.removeIf(based::get);
+        if (!baseID.isEmpty()) {
+            boundary.add(baseID);
+        }
+        for (String commitID : result) {
+            for (String parentID : shallow.parents(read.get(commitID))) {
+                if (based.get(parentID)) {
+                    boundary.add(parentID);
+                }
+            }
+        }
+        return order(result);
+    }
+
+    /** Return IDS ordered so that every commit comes before those of
+     *  its parents that are in IDS. */
+    private static LinkedHashSet<String> order(LinkedHashSet<String> ids) {
+        HashSet<String> visited = new HashSet<>();
+        ArrayList<String> postorder = new ArrayList<>();
+        for (String start : ids) {
+            ArrayDeque<String[]> stack = new ArrayDeque<>();
+            stack.push(new String[] {start, "enter"});
+            while (!stack.isEmpty()) {
+                String[] item = stack.pop();
+                String commitID = item[0];
+                if (item[1].equals("exit")) {
+                    postorder.add(commitID);
+                    continue;
+                }
+                if (!ids.contains(commitID) || !visited.add(commitID)) {
+                    continue;
+                }
+                stack.push(new String[] {commitID, "exit"});
+                Commit commit =
+                    readObject(join(COMMITS, commitID), Commit.class);
+                stack.push(new String[] {commit.merge(), "enter"});
+                stack.push(new String[] {commit.parentID(), "enter"});
+            }
+        }
+        Collections.reverse(postorder);
+        return new LinkedHashSet<>(postorder);
+    }
+
+    /** Return the chunks of those of BLOBS that are stored in chunks. */
+    private static LinkedHashSet<String> chunks(Iterable<String> blobs) {
+        LinkedHashSet<String> result = new LinkedHashSet<>();
+        String[] stored = CHUNKS.list();
+        if (stored == null || stored.length == 0) {
+            return result;
+        }
+        for (String blobSha : blobs) {
+            Blob blob = readObject(join(OBJECTS, blobSha), Blob.class);
+            if (blob.chunks() != null) {
+                Collections.addAll(result, blob.chunks());
+            }
+        }
+        return result;
+    }
+
+    /** Write the contents of FILE to OUT as an entry tagged TAG. */
+    private static void entry(DataOutputStream out, byte tag, File file)
+        throws IOException {
+        byte[] contents = readContents(file);
+        out.writeByte(tag);
+        out.writeUTF(file.getName());
+        out.writeInt(contents.length);
+        out.write(contents);
+    }
+
+    /** Store CONTENTS as FILE, unless it is already there.  Return 1 if
+     *  it was stored, else 0. */
+    private static int store(File file, byte[] contents) {
+        if (file.exists()) {
+            return 0;
+        }
+        file.getParentFile().mkdir();
+        if (Journal.active()) {
+            Journal.write(file, contents);
+        } else {
+            atomicWriteContents(file, contents);
+        }
+        return 1;
+    }
+
+    /** Throw GitletException unless CONTENTS is the chunk NAME. */
+    private static void checkChunk(String name, byte[] contents) {
+        if (!sha1((Object) contents).equals(name)) {
+            throw error("Bundle is damaged: bad chunk %s.", name);
+        }
+    }
+
+    /** Throw GitletException unless CONTENTS is the blob NAME, whose
+     *  chunks, if any, are already stored. */
+    private static void checkBlob(String name, byte[] contents) {
+        try {
+            Blob blob = deserialize(contents, Blob.class);
+            if (blob.shaCode().equals(name) && blob.intact()) {
+                return;
+            }
+        } catch (IllegalArgumentException excp) {
+            /* Reported below. */
+        }
+        throw error("Bundle is damaged: bad blob %s.", name);
+    }
+
+    /** Throw GitletException unless CONTENTS is the commit NAME, whose
+     *  parents and blobs are already stored. */
+    private static void checkCommit(String name, byte[] contents) {
+        Commit commit;
+        try {
+            commit = deserialize(contents, Commit.class);
+        } catch (IllegalArgumentException excp) {
+            throw error("Bundle is damaged: bad commit %s.", name);
+        }
+        if (!commit.shaCode().equals(name)) {
+            throw error("Bundle is damaged: bad commit %s.", name);
+        }
+        for (String parentID : new String[] {commit.parentID(),
+                                             commit.merge()}) {
+            if (!parentID.isEmpty() && !join(COMMITS, parentID).isFile()) {
+                throw error("Bundle needs commit %s, which is missing.",
+                        parentID);
+            }
+        }
+        for (String blobSha : commit.data().values()) {
+            if (!join(OBJECTS, blobSha).isFile()) {
+                throw error("Bundle is damaged: commit %s lacks blob %s.",
+                        name, blobSha);
+            }
+        }
+    }
+}
@@ -15,20 +15,18 @@ class Checkout {
      * @param args include [filename], [commitID] -- [filename], [branch] */
     Checkout(String[] args) {
         _head = readObject(HEAD, Branch.class);
-        File headBranchFile = join(REFS, _head.getBranch());
-        Branch headBranch = readObject(headBranchFile, Branch.class);
+        Branch headBranch = Refs.read(_head.getBranch());
         switch (args.length) {
         case 2:
             if (args[0].equals("reset")) {
                 reset(args[1]);
                 break;
             }
-            File branchFile = join(REFS, args[1]);
-            if (!branchFile.exists()) {
+            Branch branch = Refs.read(args[1]);
+            if (branch == null) {
                 throw new GitletException
                 ("No such branch exists.");
             }
-            Branch branch = readObject(branchFile, Branch.class);
             if (branch.name().equals(headBranch.name())) {
                 throw new GitletException
                 ("No need to checkout the current branch.");
@@ -77,16 +75,30 @@ class Checkout {
     }
 
     /** Checkout file to Working Directory from
-     *  CHECKOUT if file tracked in CURR. */
+     *  CHECKOUT if file tracked in CURR.  Files outside the sparse
+     *  checkout (see Sparse) are not written, and are deleted if they
+     *  hold what CURR has for them.  Files that CURR and CHECKOUT share
+     *  and that are unchanged in the working directory are left alone,
+     *  which costs a read and a hash instead of a write. */
     static void checkoutCommit(Commit curr, Commit checkout) {
         for (String key : curr.data().keySet()) {
             if (!checkout.data().containsKey(key)) {
                 restrictedDelete(key);
             }
         }
+        Sparse sparse = Sparse.load();
         for (String fileName : checkout.data().keySet()) {
-            untrackedFile(checkout, curr, fileName);
-            checkoutFile(checkout, fileName);
+            String blobSha = checkout.data().get(fileName);
+            File file = join(CWD, fileName);
+            if (!sparse.includes(fileName)) {
+                if (holds(file, curr.data().get(fileName))) {
+                    restrictedDelete(file);
+                }
+            } else if (!blobSha.equals(curr.data().get(fileName))
+                       || !holds(file, blobSha)) {
+                untrackedFile(checkout, curr, fileName);
+                checkoutFile(checkout, fileName);
+            }
         }
     }
 
@@ -96,14 +108,21 @@ class Checkout {
             String blobSha = commit.data().get(fileName);
             File blobFile = join(OBJECTS, blobSha);
             Blob b = readObject(blobFile, Blob.class);
-            File file = join(CWD, b.fileName());
-            writeContents(file, b.fileContents());
+            File file = join(CWD, fileName);
+            b.writeTo(file);
         } else {
             throw new GitletException
             ("File does not exist in that commit.");
         }
     }
 
+    /** Return true if FILE is a plain file holding the contents of the
+     *  blob BLOBSHA, which may be null. */
+    static boolean holds(File file, String blobSha) {
+        return blobSha != null && file.isFile()
+            && Blob.matches(blobSha, new Blob(file));
+    }
+
     /** Return COMMITID of length IDLENGTH if Commit exists. */
     static String getCommitID(String commitID, int idLength) {
         if (idLength == FULL_LENGTH) {
@@ -151,8 +170,9 @@ class Checkout {
         Commit currCommit = getHeadCommit(_head);
         checkoutCommit(currCommit, resetCommit);
 
-        writeHeadUpdate(resetCommit, _head);
-        _stagingArea.map().clear();
+        writeHeadUpdate(resetCommit, _head, "reset: moving to "
+                + commitID.substring(0, SHORT_LENGTH));
+        _stagingArea.clear();
         writeObject(INDEX, _stagingArea);
     }
 
@@ -162,4 +182,6 @@ class Checkout {
     private static StagingArea _stagingArea;
     /** Full length of Commit IDs. */
     private static final int FULL_LENGTH = 40;
+    /** Length of the Commit IDs in reflog reasons. */
+    private static final int SHORT_LENGTH = 7;
 }
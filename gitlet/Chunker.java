@@ -0,0 +1,118 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/** Splits a stream into content-defined chunks, in the manner of FastCDC.
+ *  A gear hash rolls over the bytes and a chunk ends where its top bits
+ *  are zero, so a boundary depends only on the bytes just before it: an
+ *  edit changes the chunks around it, and the chunks after it line up
+ *  with the old version's again.  Chunks are between MIN_SIZE and
+ *  MAX_SIZE bytes long; a stricter test before AVERAGE_SIZE and a looser
+ *  one after it keep most of them close to AVERAGE_SIZE.
+ *  @author Andrew Kaplan */
+class Chunker {
+
+    /** Smallest chunk, except perhaps the last. */
+    static final int MIN_SIZE = 2 * 1024;
+    /** Usual chunk size. */
+    static final int AVERAGE_SIZE = 8 * 1024;
+    /** Largest chunk. */
+    static final int MAX_SIZE = 64 * 1024;
+
+    /** A Chunker reading from IN. */
+    Chunker(InputStream in) {
+        _in = in;
+        _buffer = new byte[MAX_SIZE];
+    }
+
+    /** Return the next chunk of the input, or null at its end. */
+    byte[] next() throws IOException {
+        fill();
+        if (_start == _end) {
+            return null;
+        }
+        int length = cut(_buffer, _start, _end - _start);
+        byte[] chunk = Arrays.copyOfRange(_buffer, _start, _start + length);
+        _start += length;
+        return chunk;
+    }
+
+    /** Return the length of the chunk at the start of DATA[OFFSET ..
+     *  OFFSET + LENGTH). */
+    static int cut(byte[] data, int offset, int length) {
+        if (length <= MIN_SIZE) {
+            return length;
+        }
+        int normal = Math.min(length, AVERAGE_SIZE);
+        int limit = Math.min(length, MAX_SIZE);
+        long hash = 0;
+        int i = MIN_SIZE;
+        for (; i < normal; i += 1) {
+            hash = (hash << 1) + GEAR[data[offset + i] & 0xff];
+            if ((hash & MASK_SMALL) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < limit; i += 1) {
+            hash = (hash << 1) + GEAR[data[offset + i] & 0xff];
+            if ((hash & MASK_LARGE) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    /** Move the unread bytes to the front of _buffer and top it up from
+     *  _in, unless a whole chunk is already buffered. */
+    private void fill() throws IOException {
+        if (_eof || _end - _start >= MAX_SIZE) {
+            return;
+        }
+        System.arraycopy(_buffer, _start, _buffer, 0, _end - _start);
+        _end -= _start;
+        _start = 0;
+        while (_end < _buffer.length) {
+            int n = _in.read(_buffer, _end, _buffer.length - _end);
+            if (n < 0) {
+                _eof = true;
+                break;
+            }
+            _end += n;
+        }
+    }
+
+    /** Return a mask of the top BITS bits of a long. */
+    private static long topBits(int bits) {
+        return -1L << (Long.SIZE - bits);
+    }
+
+    /** Hash boundary test before AVERAGE_SIZE: 15 bits must be zero. */
+    private static final long MASK_SMALL = topBits(15);
+    /** Hash boundary test after AVERAGE_SIZE: 11 bits must be zero. */
+    private static final long MASK_LARGE = topBits(11);
+
+    /** Random value added to the hash for each byte value.  The seed is
+     *  fixed, since chunk boundaries must not change between runs. */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        Random random = new Random(0x676974L);
+        for (int k = 0; k < GEAR.length; k += 1) {
+            GEAR[k] = random.nextLong();
+        }
+    }
+
+    /** Source of the bytes. */
+    private final InputStream _in;
+    /** Bytes read but not yet returned are _buffer[_start .. _end). */
+    private final byte[] _buffer;
+    /** Start of the unread bytes in _buffer. */
+    private int _start;
+    /** End of the unread bytes in _buffer. */
+    private int _end;
+    /** True once _in is exhausted. */
+    private boolean _eof;
+}
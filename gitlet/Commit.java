@@ -2,6 +2,7 @@ package gitlet;
 
 import java.io.File;
 import java.io.Serializable;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.HashMap;
@@ -15,10 +16,14 @@ import static gitlet.Repository.*;
 
 class Commit implements Serializable {
 
+    /** Fixed to the value computed before FORMATTER was static, so that
+     *  older commits can still be read. */
+    private static final long serialVersionUID = 7736889525946284145L;
+
     /** Initial Commit Constructor. */
     Commit() {
         _message = "initial commit";
-        _timestamp = formatter.format(Date.from(Instant.EPOCH));
+        _timestamp = FORMATTER.format(Date.from(Instant.EPOCH));
         _parentID = "";
         _mergeID = "";
         _data = new StagingArea().map();
@@ -30,10 +35,22 @@ class Commit implements Serializable {
      * @param parentID : Parent of constructed commit */
     Commit(String msg, String parentID) {
         _message = msg;
-        _timestamp = formatter.format(Date.from(Instant.now()));
+        _timestamp = FORMATTER.format(Date.from(Instant.now()));
         _parentID = parentID;
         _mergeID = "";
-        _data = updateData(new HashMap<>(stagingArea().map()));
+        _data = updateData(stagingArea());
+        _shaCode = createShaCode();
+    }
+
+    /** Commit of DATA with the message MSG, the parent PARENTID and the
+     *  merge parent MERGEID, which is "" for none. */
+    Commit(String msg, String parentID, String mergeID,
+           HashMap<String, String> data) {
+        _message = msg;
+        _timestamp = FORMATTER.format(Date.from(Instant.now()));
+        _parentID = parentID;
+        _mergeID = mergeID;
+        _data = data;
         _shaCode = createShaCode();
     }
 
@@ -54,8 +71,7 @@ class Commit implements Serializable {
 
     /** Assign merge parent from BRANCHNAME. */
     void assignMergeParent(String branchName) {
-        File mergeBranchFile = join(REFS, branchName);
-        Branch mergeBranch = readObject(mergeBranchFile, Branch.class);
+        Branch mergeBranch = Refs.read(branchName);
         File mergeCommit = join(COMMITS, mergeBranch.pointer());
         _mergeID = readObject(mergeCommit, Commit.class).shaCode();
     }
@@ -70,6 +86,15 @@ class Commit implements Serializable {
         return _timestamp;
     }
 
+    /** Return when this commit was made, in seconds since the epoch. */
+    long time() {
+        try {
+            return FORMATTER.parse(_timestamp).getTime() / MILLIS;
+        } catch (ParseException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
     /** Return ShaCode. */
     String shaCode() {
         return _shaCode;
@@ -81,36 +106,23 @@ class Commit implements Serializable {
         return sha1((Object) com);
     }
 
-    /** Return _data HashMap with changes staged in StagingArea MAP. */
-    HashMap<String, String> updateData(HashMap<String, String> map) {
+    /** Return the parent's _data HashMap with the changes in STAGE: its
+     *  staged files added and its files marked for removal left out. */
+    HashMap<String, String> updateData(StagingArea stage) {
         File parentFile = join(COMMITS, parentID());
+        HashMap<String, String> newData = new HashMap<>();
         if (parentFile.exists()) {
             Commit parent = readObject(parentFile, Commit.class);
-            if (!parent.data().isEmpty()) {
-                HashMap<String, String> newData = new HashMap<>();
-                for (String fileName : parent.data().keySet()) {
-                    File blobFile = join(OBJECTS, parent.data().get(fileName));
-                    Blob b = readObject(blobFile, Blob.class);
-                    if (b.rm()) {
-                        b.changeRmStatus();
-                        writeObject(blobFile, b);
-                        break;
-                    } else {
-                        newData.put(fileName, parent.data().get(fileName));
-                    }
-                }
-                for (String fileName : map.keySet()) {
-                    newData.put(fileName, map.get(fileName));
-                }
-                return newData;
-            }
-            return map;
+            newData.putAll(parent.data());
+            newData.keySet().removeAll(stage.removed());
         }
-        return map;
+        newData.putAll(stage.map());
+        return newData;
     }
 
     /** Return HashMap PATHWAY containing ancestors of GIVEN based
-     *  and the length of the PATHLEN from GIVEN to ancestor. */
+     *  and the length of the PATHLEN from GIVEN to ancestor.  Parents a
+     *  shallow repository lacks are left out. */
     static HashMap<String, Integer> givenAncestors(Commit given, int pathLen,
                                             HashMap<String, Integer> pathway) {
         pathway.put(given.shaCode(), pathLen);
@@ -121,8 +133,8 @@ class Commit implements Serializable {
                 return null;
             } else {
                 givenAncestors(ancestor, pathLen + 1, pathway);
-                if (!given.merge().equals("")) {
-                    File mergeFile = join(COMMITS, given.merge());
+                File mergeFile = join(COMMITS, given.merge());
+                if (!given.merge().equals("") && mergeFile.isFile()) {
                     Commit mergeAncestor = readObject(mergeFile, Commit.class);
                     givenAncestors(mergeAncestor, pathLen + 1, pathway);
                 }
@@ -136,6 +148,16 @@ class Commit implements Serializable {
     /** Return the SPLITID of the common ancestor of CURR and GIVEN in PATH with
      *  the minimum path length. */
     static String findSplitPoint(HashMap<String, Integer> path, Commit curr) {
+        _min = Integer.MAX_VALUE;
+        _splitID = "";
+        return closestAncestor(path, curr);
+    }
+
+    /** Search CURR and its ancestors for the member of PATH with the
+     *  minimum path length, recording it in _min and _splitID, and return
+     *  _splitID. */
+    private static String closestAncestor(HashMap<String, Integer> path,
+                                          Commit curr) {
         if (path.containsKey(curr.shaCode())) {
             if (path.get(curr.shaCode()) < _min) {
                 _min = path.get(curr.shaCode());
@@ -145,12 +167,12 @@ class Commit implements Serializable {
         File ancestorFile = join(COMMITS, curr.parentID());
         if (ancestorFile.exists() && !ancestorFile.isDirectory()) {
             Commit ancestor = readObject(ancestorFile, Commit.class);
-            findSplitPoint(path, ancestor);
+            closestAncestor(path, ancestor);
         }
-        if (!curr.merge().equals("")) {
-            File mergeFile = join(COMMITS, curr.merge());
+        File mergeFile = join(COMMITS, curr.merge());
+        if (!curr.merge().equals("") && mergeFile.isFile()) {
             Commit mergeAncestor = readObject(mergeFile, Commit.class);
-            findSplitPoint(path, mergeAncestor);
+            closestAncestor(path, mergeAncestor);
         }
         return _splitID;
     }
@@ -172,7 +194,11 @@ class Commit implements Serializable {
     private final HashMap<String, String> _data;
     /** ShaCode instance. */
     private final String _shaCode;
-    /** SimpleDateFormat used to construct Timestamp. */
-    private SimpleDateFormat formatter =
+    /** SimpleDateFormat used to construct Timestamp.  Static, so that it
+     *  is not serialized: its state depends on when it was made, and
+     *  would give the same commit a different ID in each repository. */
+    private static final SimpleDateFormat FORMATTER =
             new SimpleDateFormat("EEE MMM d HH:mm:ss yyyy Z");
+    /** Milliseconds in a second. */
+    private static final long MILLIS = 1000;
 }
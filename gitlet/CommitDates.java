@@ -0,0 +1,105 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** When each commit was made, kept in DATES_FILE as lines "SECONDS ID",
+ *  so that global-log can pick the commits of a date range, newest
+ *  first, without reading and parsing every commit.  The index is a
+ *  cache: each load lists COMMITS, reads only the commits it lacks, drops
+ *  those gc has removed, and writes it back if anything changed.
+ *  @author Andrew Kaplan */
+class CommitDates {
+
+    /** File holding the index. */
+    static final File DATES_FILE = join(MAIN_FOLDER, "commit-dates");
+
+    /** An index holding TIMES, mapping commit IDs to seconds since the
+     *  epoch. */
+    private CommitDates(HashMap<String, Long> times) {
+        _times = times;
+    }
+
+    /** Return the index, brought up to date with COMMITS. */
+    static CommitDates load() {
+        HashMap<String, Long> stored = new HashMap<>();
+        if (Journal.exists(DATES_FILE)) {
+            String text = new String(Journal.read(DATES_FILE),
+                                     StandardCharsets.UTF_8);
+            for (String line : text.split("\n")) {
+                int space = line.indexOf(' ');
+                if (space > 0) {
+                    stored.put(line.substring(space + 1),
+                            Long.parseLong(line.substring(0, space)));
+                }
+            }
+        }
+        String[] ids = COMMITS.list();
+        HashMap<String, Long> times = new HashMap<>();
+        boolean changed = false;
+        for (String commitID : ids == null ? new String[0] : ids) {
+            Long time = stored.get(commitID);
+            if (time == null) {
+                time = readObject(join(COMMITS, commitID), Commit.class)
+                    .time();
+                changed = true;
+            }
+            times.put(commitID, time);
+        }
+        CommitDates dates = new CommitDates(times);
+        if (changed || times.size() != stored.size()) {
+            dates.save();
+        }
+        return dates;
+    }
+
+    /** Return the IDs of the commits made from SINCE to UNTIL, in seconds
+     *  since the epoch, newest first. */
+    ArrayList<String> between(long since, long until) {
+        ArrayList<Map.Entry<String, Long>> entries = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : _times.entrySet()) {
+            if (entry.getValue() >= since && entry.getValue() <= until) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed()
+                     .thenComparing(Map.Entry.comparingByKey()));
+        ArrayList<String> result = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : entries) {
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    /** Write the index, oldest commits first. */
+    private void save() {
+        String[] lines = new String[_times.size()];
+        int k = 0;
+        for (Map.Entry<String, Long> entry : _times.entrySet()) {
+            lines[k] = String.format("%020d %s", entry.getValue(),
+                                     entry.getKey());
+            k += 1;
+        }
+        Arrays.sort(lines);
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        byte[] contents = text.toString().getBytes(StandardCharsets.UTF_8);
+        if (Journal.active()) {
+            Journal.write(DATES_FILE, contents);
+        } else {
+            atomicWriteContents(DATES_FILE, contents);
+        }
+    }
+
+    /** Seconds since the epoch at which each commit was made, by ID. */
+    private final HashMap<String, Long> _times;
+}
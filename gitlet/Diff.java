@@ -0,0 +1,216 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** Line differences between two texts, found with Myers' O(ND) algorithm
+ *  in its linear-space form: each step finds the middle snake of the
+ *  remaining edit graph and recurses on the halves on either side, so
+ *  only O(N + M) working storage is needed however far apart the texts
+ *  are.  Changes are reported in order as they are found.
+ *  @author Andrew Kaplan */
+class Diff {
+
+    /** Receives the changes found by a Diff, in order. */
+    interface Changes {
+        /** Lines AFROM to ATO (exclusive) of the first text are replaced
+         *  by lines BFROM to BTO of the second.  Either range may be
+         *  empty. */
+        void change(int aFrom, int aTo, int bFrom, int bTo);
+    }
+
+    /** Return the lines of TEXT, each with its terminating newline.  The
+     *  last line lacks one if TEXT does not end in a newline. */
+    static String[] lines(String text) {
+        ArrayList<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            lines.add(text.substring(start, end));
+            start = end;
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    /** A Diff of lines A against lines B.  SYMBOLS numbers distinct lines
+     *  and may be shared with other Diffs whose results are compared. */
+    Diff(String[] a, String[] b, HashMap<String, Integer> symbols) {
+        _a = number(a, symbols);
+        _b = number(b, symbols);
+    }
+
+    /** A Diff of lines A against lines B. */
+    Diff(String[] a, String[] b) {
+        this(a, b, new HashMap<>());
+    }
+
+    /** Report the changes turning the first text into the second to OUT,
+     *  in order, merging changes that touch. */
+    void compare(Changes out) {
+        _out = out;
+        _pending = null;
+        compare(0, _a.length, 0, _b.length);
+        flush();
+    }
+
+    /** Return the changes turning the first text into the second, each
+     *  as {aFrom, aTo, bFrom, bTo}. */
+    ArrayList<int[]> changes() {
+        ArrayList<int[]> result = new ArrayList<>();
+        compare((aFrom, aTo, bFrom, bTo) ->
+                result.add(new int[] {aFrom, aTo, bFrom, bTo}));
+        return result;
+    }
+
+    /** Find the changes between _a[A0 .. A1) and _b[B0 .. B1). */
+    private void compare(int a0, int a1, int b0, int b1) {
+        while (a0 < a1 && b0 < b1 && _a[a0] == _b[b0]) {
+            a0 += 1;
+            b0 += 1;
+        }
+        while (a0 < a1 && b0 < b1 && _a[a1 - 1] == _b[b1 - 1]) {
+            a1 -= 1;
+            b1 -= 1;
+        }
+        if (a0 == a1 || b0 == b1) {
+            if (a0 != a1 || b0 != b1) {
+                report(a0, a1, b0, b1);
+            }
+            return;
+        }
+        int[] split = middleSnake(a0, a1, b0, b1);
+        if (split == null) {
+            report(a0, a1, b0, b1);
+        } else {
+            compare(a0, split[0], b0, split[1]);
+            compare(split[0], a1, split[1], b1);
+        }
+    }
+
+    /** Return a point {x, y} on an optimal edit path through
+     *  _a[A0 .. A1) and _b[B0 .. B1) that splits it into two smaller
+     *  problems, or null if the two ranges have no line in common.  The
+     *  ranges are non-empty and differ in their first and last lines. */
+    private int[] middleSnake(int a0, int a1, int b0, int b1) {
+        int n = a1 - a0, m = b1 - b0;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD + 1;
+        int length = 2 * maxD + 3;
+        int[] forward = new int[length];
+        int[] backward = new int[length];
+        Arrays.fill(forward, -1);
+        Arrays.fill(backward, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int kStart1 = 0, kEnd1 = 0, kStart2 = 0, kEnd2 = 0;
+        for (int d = 0; d < maxD; d += 1) {
+            for (int k = -d + kStart1; k <= d - kEnd1; k += 2) {
+                int i = offset + k;
+                int x;
+                if (k == -d || (k != d && forward[i - 1] < forward[i + 1])) {
+                    x = forward[i + 1];
+                } else {
+                    x = forward[i - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && _a[a0 + x] == _b[b0 + y]) {
+                    x += 1;
+                    y += 1;
+                }
+                forward[i] = x;
+                if (x > n) {
+                    kEnd1 += 2;
+                } else if (y > m) {
+                    kStart1 += 2;
+                } else if (odd) {
+                    int j = offset + delta - k;
+                    if (j >= 0 && j < length && backward[j] != -1
+                            && x >= n - backward[j]) {
+                        return new int[] {a0 + x, b0 + y};
+                    }
+                }
+            }
+            for (int k = -d + kStart2; k <= d - kEnd2; k += 2) {
+                int i = offset + k;
+                int x;
+                if (k == -d
+                        || (k != d && backward[i - 1] < backward[i + 1])) {
+                    x = backward[i + 1];
+                } else {
+                    x = backward[i - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m
+                        && _a[a1 - x - 1] == _b[b1 - y - 1]) {
+                    x += 1;
+                    y += 1;
+                }
+                backward[i] = x;
+                if (x > n) {
+                    kEnd2 += 2;
+                } else if (y > m) {
+                    kStart2 += 2;
+                } else if (!odd) {
+                    int j = offset + delta - k;
+                    if (j >= 0 && j < length && forward[j] != -1) {
+                        int fx = forward[j];
+                        int fy = fx - (j - offset);
+                        if (fx >= n - x) {
+                            return new int[] {a0 + fx, b0 + fy};
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Record the change of _a[A0 .. A1) to _b[B0 .. B1), merging it with
+     *  the previous change if the two touch. */
+    private void report(int a0, int a1, int b0, int b1) {
+        if (_pending != null && _pending[1] == a0 && _pending[3] == b0) {
+            _pending[1] = a1;
+            _pending[3] = b1;
+            return;
+        }
+        flush();
+        _pending = new int[] {a0, a1, b0, b1};
+    }
+
+    /** Pass on the change held back by report, if any. */
+    private void flush() {
+        if (_pending != null) {
+            _out.change(_pending[0], _pending[1], _pending[2], _pending[3]);
+            _pending = null;
+        }
+    }
+
+    /** Return LINES with each line replaced by its number in SYMBOLS,
+     *  adding new lines to SYMBOLS as needed. */
+    private static int[] number(String[] lines,
+                                HashMap<String, Integer> symbols) {
+        int[] result = new int[lines.length];
+        for (int i = 0; i < lines.length; i += 1) {
+            Integer symbol = symbols.get(lines[i]);
+            if (symbol == null) {
+                symbol = symbols.size();
+                symbols.put(lines[i], symbol);
+            }
+            result[i] = symbol;
+        }
+        return result;
+    }
+
+    /** Numbered lines of the first text. */
+    private final int[] _a;
+    /** Numbered lines of the second text. */
+    private final int[] _b;
+    /** Where changes are reported. */
+    private Changes _out;
+    /** Change not yet reported, as {aFrom, aTo, bFrom, bTo}, or null. */
+    private int[] _pending;
+}
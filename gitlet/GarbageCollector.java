@@ -0,0 +1,201 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** Handle calls to gc from Repository: delete the commits, blobs and
+ *  chunks that no branch, reflog entry, stash entry or staged file can
+ *  reach.  Each store is indexed by sorting its file names once, and
+ *  reachable entries are marked in a BitSet over that index, so marking
+ *  costs a bit per object however large the repository.  Unmarked files
+ *  younger than the grace period are kept, as are the files of a command
+ *  that died part way.
+ *  @author Andrew Kaplan */
+class GarbageCollector {
+
+    /** Parse the gc call ARGS, collect garbage and report what was
+     *  reclaimed.
+     * @param args include [], --now, --prune=[days] */
+    GarbageCollector(String[] args) {
+        long grace = DEFAULT_GRACE_DAYS;
+        if (args.length == 2 && args[1].equals("--now")) {
+            grace = 0;
+        } else if (args.length == 2 && args[1].startsWith("--prune=")) {
+            try {
+                grace = Long.parseLong(args[1].substring("--prune=".length()));
+            } catch (NumberFormatException excp) {
+                throw new GitletException("Incorrect operands.");
+            }
+        } else if (args.length != 1) {
+            throw new GitletException("Incorrect operands.");
+        }
+        _cutoff = System.currentTimeMillis() - grace * DAY;
+
+        _commits = new Store(COMMITS);
+        _blobs = new Store(OBJECTS);
+        _chunks = new Store(CHUNKS);
+        markRoots();
+        int commits = _commits.sweep();
+        int blobs = _blobs.sweep();
+        int chunks = _chunks.sweep();
+        int temps = sweepTemporaries();
+        System.out.println("Removed " + commits + " commits, " + blobs
+                + " blobs, " + chunks + " chunks and " + temps
+                + " temporary files; reclaimed " + _reclaimed + " bytes.");
+    }
+
+    /** Mark everything reachable from the branches and the staging
+     *  area. */
+    private void markRoots() {
+        ArrayDeque<String> commits = new ArrayDeque<>();
+        for (String branchName : Refs.names()) {
+            commits.push(Refs.read(branchName).pointer());
+        }
+        for (String commitID : Stash.commits()) {
+            commits.push(commitID);
+        }
+        Shallow shallow = Shallow.load();
+        for (String commitID : Reflog.commits()) {
+            if (_commits.contains(commitID)) {
+                commits.push(commitID);
+            }
+        }
+        while (!commits.isEmpty()) {
+            String commitID = commits.pop();
+            if (commitID.equals("") || !_commits.mark(commitID)) {
+                continue;
+            }
+            Commit commit = readObject(join(COMMITS, commitID), Commit.class);
+            for (String blobSha : commit.data().values()) {
+                markBlob(blobSha);
+            }
+            commits.addAll(shallow.parents(commit));
+        }
+        StagingArea stage = readObject(INDEX, StagingArea.class);
+        for (String blobSha : stage.map().values()) {
+            markBlob(blobSha);
+        }
+    }
+
+    /** Mark the blob BLOBSHA and, if it is stored in chunks, its
+     *  chunks. */
+    private void markBlob(String blobSha) {
+        if (!_blobs.mark(blobSha) || _chunks.isEmpty()) {
+            return;
+        }
+        Blob blob = readObject(join(OBJECTS, blobSha), Blob.class);
+        if (blob.chunks() != null) {
+            for (String chunkSha : blob.chunks()) {
+                _chunks.mark(chunkSha);
+            }
+        }
+    }
+
+    /** Delete the temporary files that interrupted writes left in TMP,
+     *  and return how many there were. */
+    private int sweepTemporaries() {
+        int count = 0;
+        File[] temps = TMP.listFiles();
+        if (temps == null) {
+            return 0;
+        }
+        for (File temp : temps) {
+            if (temp.lastModified() < _cutoff) {
+                count += remove(temp);
+            }
+        }
+        return count;
+    }
+
+    /** Delete FILE, adding its size to _reclaimed.  Return 1 if it was
+     *  deleted, else 0. */
+    private int remove(File file) {
+        long size = file.length();
+        if (!file.delete()) {
+            return 0;
+        }
+        _reclaimed += size;
+        return 1;
+    }
+
+    /** The files of one content-addressed directory, with a mark bit for
+     *  each. */
+    private class Store {
+
+        /** A Store indexing the files of DIR. */
+        Store(File dir) {
+            _dir = dir;
+            String[] names = dir.list();
+            _names = names == null ? new String[0] : names;
+            Arrays.sort(_names);
+            _marks = new BitSet(_names.length);
+        }
+
+        /** Mark NAME as reachable.  Return true if it was not marked
+         *  already.  Throws GitletException if NAME is missing. */
+        boolean mark(String name) {
+            int k = Arrays.binarySearch(_names, name);
+            if (k < 0) {
+                throw error("Missing object %s in %s; not collecting.", name,
+                        _dir.getName());
+            }
+            if (_marks.get(k)) {
+                return false;
+            }
+            _marks.set(k);
+            return true;
+        }
+
+        /** Return true if the directory has a file NAME. */
+        boolean contains(String name) {
+            return Arrays.binarySearch(_names, name) >= 0;
+        }
+
+        /** Return true if the directory has no files. */
+        boolean isEmpty() {
+            return _names.length == 0;
+        }
+
+        /** Delete the unmarked files older than the grace period, and
+         *  return how many were deleted. */
+        int sweep() {
+            int count = 0;
+            for (int k = _marks.nextClearBit(0); k < _names.length;
+                 k = _marks.nextClearBit(k + 1)) {
+                File file = join(_dir, _names[k]);
+                if (file.lastModified() < _cutoff) {
+                    count += remove(file);
+                }
+            }
+            return count;
+        }
+
+        /** The directory. */
+        private final File _dir;
+        /** Its file names, sorted. */
+        private final String[] _names;
+        /** Bit K is set when _names[K] is reachable. */
+        private final BitSet _marks;
+    }
+
+    /** Days an unreachable file is kept, unless gc is told otherwise. */
+    private static final long DEFAULT_GRACE_DAYS = 14;
+    /** Milliseconds in a day. */
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    /** Unreachable files modified before this time are deleted. */
+    private final long _cutoff;
+    /** The commits. */
+    private final Store _commits;
+    /** The blobs. */
+    private final Store _blobs;
+    /** The chunks of large files. */
+    private final Store _chunks;
+    /** Bytes freed so far. */
+    private long _reclaimed;
+}
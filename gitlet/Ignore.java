@@ -0,0 +1,239 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static gitlet.Utils.*;
+
+/** Compiled form of the glob patterns in .gitletignore.  Each pattern is
+ *  split into its literal prefix and its wildcard remainder; prefixes are
+ *  stored in a character trie so that a name is matched in a single walk
+ *  down the trie, only testing the wildcard remainders hanging off the
+ *  nodes it passes through.
+ *  @author Andrew Kaplan */
+class Ignore {
+
+    /** File containing ignore patterns, one per line. */
+    static final File IGNORE_FILE = join(Repository.CWD, ".gitletignore");
+
+    /** Ignore Constructor.
+     * @param patterns : Lines of a .gitletignore file. Blank lines and
+     *                 lines starting with # are skipped. */
+    Ignore(List<String> patterns) {
+        _names = new Node();
+        _paths = new Node();
+        for (String line : patterns) {
+            String pattern = line.trim();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                continue;
+            }
+            boolean dirOnly = pattern.endsWith("/");
+            if (dirOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            boolean anchored = pattern.contains("/");
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            insert(anchored ? _paths : _names, pattern, dirOnly);
+            _empty = false;
+        }
+    }
+
+    /** Return the Ignore rules read from IGNORE_FILE, or an Ignore that
+     *  matches nothing if there is no such file. */
+    static Ignore load() {
+        ArrayList<String> lines = new ArrayList<>();
+        if (IGNORE_FILE.isFile()) {
+            for (String line : readContentsAsString(IGNORE_FILE).split("\n")) {
+                lines.add(line);
+            }
+        }
+        return new Ignore(lines);
+    }
+
+    /** Return true if PATH, relative to the working directory, is ignored.
+     *  DIRECTORY indicates whether PATH names a directory, in which case
+     *  everything below it is ignored as well. */
+    boolean ignored(String path, boolean directory) {
+        if (_empty) {
+            return false;
+        }
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        return matches(_names, name, directory)
+                || matches(_paths, path, directory);
+    }
+
+    /** Return the names of the plain files in the working directory that
+     *  are not ignored.  Ignored entries are rejected by name before they
+     *  are examined, so an ignored directory is never opened. */
+    List<String> workingFiles() {
+        long start = Trace.begin();
+        ArrayList<String> files = new ArrayList<>();
+        String[] names = Repository.CWD.list();
+        if (names == null) {
+            return files;
+        }
+        for (String name : names) {
+            if (name.equals(".gitlet") || ignored(name, false)) {
+                continue;
+            }
+            File file = join(Repository.CWD, name);
+            if (file.isFile()) {
+                files.add(name);
+            }
+        }
+        Trace.end(Trace.Phase.SCAN, start);
+        return files;
+    }
+
+    /** Add PATTERN to the trie rooted at ROOT, marking it DIRONLY if it
+     *  should only match directories. */
+    private static void insert(Node root, String pattern, boolean dirOnly) {
+        int wild = firstWildcard(pattern);
+        Node node = root;
+        for (int i = 0; i < wild; i += 1) {
+            node = node.child(pattern.charAt(i));
+        }
+        if (wild == pattern.length()) {
+            if (dirOnly) {
+                node._exactDir = true;
+            } else {
+                node._exact = true;
+            }
+        } else {
+            Pattern rest =
+                Pattern.compile(globToRegex(pattern.substring(wild)));
+            if (dirOnly) {
+                node._dirGlobs.add(rest);
+            } else {
+                node._globs.add(rest);
+            }
+        }
+    }
+
+    /** Return true if NAME is matched by a rule in the trie rooted at ROOT.
+     *  DIRECTORY is true if NAME names a directory. */
+    private static boolean matches(Node root, String name, boolean directory) {
+        Node node = root;
+        for (int i = 0; node != null; i += 1) {
+            if (node.matchesRest(name.substring(i), directory)) {
+                return true;
+            }
+            if (i == name.length()) {
+                return node._exact || (directory && node._exactDir);
+            }
+            node = node._children.get(name.charAt(i));
+        }
+        return false;
+    }
+
+    /** Return the index of the first wildcard character in PATTERN, or its
+     *  length if it has none. */
+    private static int firstWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i += 1) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '\\') {
+                return i;
+            }
+        }
+        return pattern.length();
+    }
+
+    /** Return a regular expression equivalent to the glob GLOB.  A single *
+     *  or ? does not cross a /, while ** does. */
+    static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i += 1) {
+            char c = glob.charAt(i);
+            switch (c) {
+            case '*':
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i += 1;
+                } else {
+                    regex.append("[^/]*");
+                }
+                break;
+            case '?':
+                regex.append("[^/]");
+                break;
+            case '[':
+                int close = glob.indexOf(']', i + 1);
+                if (close < 0) {
+                    regex.append("\\[");
+                } else {
+                    String set = glob.substring(i + 1, close);
+                    if (set.startsWith("!")) {
+                        set = "^" + set.substring(1);
+                    }
+                    regex.append('[').append(set.replace("\\", "\\\\"))
+                        .append(']');
+                    i = close;
+                }
+                break;
+            case '\\':
+                if (i + 1 < glob.length()) {
+                    i += 1;
+                    regex.append(Pattern.quote(String.valueOf(glob.charAt(i))));
+                }
+                break;
+            default:
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+
+    /** A node of the prefix trie. */
+    private static class Node {
+
+        /** Return the child of this node for character C, creating it
+         *  if needed. */
+        Node child(char c) {
+            return _children.computeIfAbsent(c, k -> new Node());
+        }
+
+        /** Return true if one of the wildcard remainders at this node
+         *  matches REST.  DIRECTORY is true if REST ends a directory name. */
+        boolean matchesRest(String rest, boolean directory) {
+            for (Pattern glob : _globs) {
+                if (glob.matcher(rest).matches()) {
+                    return true;
+                }
+            }
+            if (directory) {
+                for (Pattern glob : _dirGlobs) {
+                    if (glob.matcher(rest).matches()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /** Children of this node by next literal character. */
+        private final HashMap<Character, Node> _children = new HashMap<>();
+        /** Wildcard remainders of patterns whose prefix ends here. */
+        private final ArrayList<Pattern> _globs = new ArrayList<>();
+        /** As _globs, for patterns that only match directories. */
+        private final ArrayList<Pattern> _dirGlobs = new ArrayList<>();
+        /** True if a literal pattern ends at this node. */
+        private boolean _exact;
+        /** True if a literal directory-only pattern ends at this node. */
+        private boolean _exactDir;
+    }
+
+    /** Trie of patterns matched against the last path component. */
+    private final Node _names;
+    /** Trie of patterns matched against the whole relative path. */
+    private final Node _paths;
+    /** True if there are no patterns at all. */
+    private boolean _empty = true;
+}
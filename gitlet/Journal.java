@@ -0,0 +1,534 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static gitlet.Utils.*;
+
+/** Write-ahead journal that makes a multi-step command all-or-nothing.
+ *  While a transaction is open, writes to .gitlet files are held in memory
+ *  (and served back to readObject), and the previous contents of every
+ *  working-directory file about to be changed are appended to JOURNAL.
+ *  Committing appends all held writes to JOURNAL in one record, which is
+ *  the commit point, and then applies them.  If a command dies before the
+ *  commit point, recover() undoes its working-directory changes; if it
+ *  dies after, recover() finishes applying its writes.
+ *  @author Andrew Kaplan */
+class Journal {
+
+    /** File holding the journal of the open transaction. */
+    static final File JOURNAL = join(Repository.MAIN_FOLDER, "journal");
+
+    /** Record tag: previous contents of a working-directory file. */
+    private static final byte UNDO = 'U';
+    /** Record tag: start of the held writes; the commit point. */
+    private static final byte COMMIT = 'C';
+    /** Record tag: one held write. */
+    private static final byte REDO = 'R';
+    /** Record tag: end of the held writes. */
+    private static final byte END = 'E';
+    /** Record tag: one held append. */
+    private static final byte APPEND = 'A';
+    /** Length recorded for a file that does not exist. */
+    private static final int ABSENT = -1;
+
+    /** Run BODY as one transaction, committing its writes if it returns
+     *  and rolling it back if it throws.  A transaction started while
+     *  another is open is nested in it: rolling it back undoes only what
+     *  BODY did, and committing it leaves its writes to the outer one. */
+    static void run(Runnable body) {
+        begin();
+        try {
+            body.run();
+        } catch (RuntimeException excp) {
+            abort();
+            throw excp;
+        }
+        commit();
+    }
+
+    /** Open a transaction, nested in the current one if there is one. */
+    static void begin() {
+        if (SAVEPOINTS.isEmpty()) {
+            _held = new LinkedHashMap<>();
+            _appends = new LinkedHashMap<>();
+            _saved = new HashSet<>();
+            _undo = new ArrayList<>();
+        }
+        SAVEPOINTS.push(new Savepoint(new LinkedHashMap<>(_held),
+                new LinkedHashMap<>(_appends), _undo.size()));
+    }
+
+    /** Commit the innermost open transaction.  Only the outermost one
+     *  actually writes anything. */
+    static void commit() {
+        SAVEPOINTS.pop();
+        if (!SAVEPOINTS.isEmpty()) {
+            return;
+        }
+        try {
+            writeOut();
+        } finally {
+            finish();
+        }
+    }
+
+    /** Roll back the innermost open transaction: restore the working
+     *  files it changed and drop the writes it made. */
+    static void abort() {
+        Savepoint savepoint = SAVEPOINTS.pop();
+        try {
+            while (_undo.size() > savepoint._undoSize) {
+                Entry entry = _undo.remove(_undo.size() - 1);
+                _saved.remove(entry._file);
+                restore(entry);
+            }
+            _held = savepoint._held;
+            _appends = savepoint._appends;
+            if (SAVEPOINTS.isEmpty()) {
+                close();
+                JOURNAL.delete();
+            }
+        } finally {
+            if (SAVEPOINTS.isEmpty()) {
+                finish();
+            }
+        }
+    }
+
+    /** Return true if a transaction is open. */
+    static boolean active() {
+        return !SAVEPOINTS.isEmpty();
+    }
+
+    /** Hold the write of CONTENTS to the .gitlet file FILE until commit.
+     *  New objects and commits, which nothing refers to yet, are written
+     *  straight away. */
+    static void write(File file, byte[] contents) {
+        if (!_held.containsKey(file) && !file.exists()
+                && isObjectDirectory(file.getParentFile())) {
+            atomicWriteContents(file, contents);
+        } else {
+            _held.put(file, contents);
+        }
+    }
+
+    /** Add CONTENTS to the end of the .gitlet file FILE, when the open
+     *  transaction commits if there is one.  Appending is cheaper than
+     *  write for a file that only ever grows, since the existing contents
+     *  are neither read nor rewritten. */
+    static void append(File file, byte[] contents) {
+        if (!active()) {
+            appendAt(file, file.length(), contents);
+            return;
+        }
+        byte[] pending = appended(file);
+        byte[] all = Arrays.copyOf(pending, pending.length + contents.length);
+        System.arraycopy(contents, 0, all, pending.length, contents.length);
+        _appends.put(file, all);
+    }
+
+    /** Return what the open transaction has appended to FILE so far. */
+    static byte[] appended(File file) {
+        if (_appends == null || !_appends.containsKey(file)) {
+            return new byte[0];
+        }
+        return _appends.get(file);
+    }
+
+    /** Return the contents of the .gitlet file FILE, as written in the open
+     *  transaction if it has written it.  Inside a cached transaction (see
+     *  setCaching), files other than blobs are only read from disk once. */
+    static byte[] read(File file) {
+        if (_held != null && _held.containsKey(file)) {
+            byte[] contents = _held.get(file);
+            if (contents == null) {
+                throw new IllegalArgumentException(file + " has been deleted");
+            }
+            return contents;
+        }
+        if (_cache != null
+                && !Repository.OBJECTS.equals(file.getParentFile())
+                && !Repository.CHUNKS.equals(file.getParentFile())) {
+            byte[] contents = _cache.get(file);
+            Trace.cache(contents != null);
+            if (contents == null) {
+                contents = readContents(file);
+                _cache.put(file, contents);
+            }
+            return contents;
+        }
+        return readContents(file);
+    }
+
+    /** Return true if FILE should be read with read() rather than
+     *  straight from disk: the open transaction has written or deleted it,
+     *  or has it in its cache. */
+    static boolean holds(File file) {
+        return (_held != null && _held.containsKey(file))
+            || (_cache != null && _cache.containsKey(file));
+    }
+
+    /** Return true if the .gitlet file FILE exists, taking writes and
+     *  deletions in the open transaction into account. */
+    static boolean exists(File file) {
+        if (_appends != null && _appends.containsKey(file)) {
+            return true;
+        }
+        if (_held != null && _held.containsKey(file)) {
+            return _held.get(file) != null;
+        }
+        return file.exists();
+    }
+
+    /** Delete the .gitlet file FILE, when the open transaction commits if
+     *  there is one.  Appends the transaction has made to FILE so far are
+     *  dropped with it. */
+    static void delete(File file) {
+        if (active()) {
+            _appends.remove(file);
+            _held.put(file, null);
+        } else {
+            file.delete();
+        }
+    }
+
+    /** Return the sorted names of the plain files in the .gitlet directory
+     *  DIR, taking writes and deletions in the open transaction into
+     *  account. */
+    static TreeSet<String> list(File dir) {
+        TreeSet<String> names = new TreeSet<>();
+        String[] onDisk = dir.list();
+        if (onDisk != null) {
+            for (String name : onDisk) {
+                if (join(dir, name).isFile()) {
+                    names.add(name);
+                }
+            }
+        }
+        if (_held != null) {
+            for (Map.Entry<File, byte[]> write : _held.entrySet()) {
+                if (dir.equals(write.getKey().getParentFile())) {
+                    if (write.getValue() == null) {
+                        names.remove(write.getKey().getName());
+                    } else {
+                        names.add(write.getKey().getName());
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /** Keep files read in the outermost open transaction in memory if
+     *  CACHING, so that later reads need not go to disk.  Nothing outside
+     *  the transaction may change the repository while it is open. */
+    static void setCaching(boolean caching) {
+        _cache = caching ? new HashMap<>() : null;
+    }
+
+    /** Record the current contents of the working-directory file FILE,
+     *  which is about to be overwritten or deleted, so that it can be
+     *  restored if the transaction does not commit. */
+    static void save(File file) {
+        if (!_saved.add(file)) {
+            return;
+        }
+        byte[] contents = file.isFile() ? readContents(file) : null;
+        _undo.add(new Entry(file, contents));
+        try {
+            DataOutputStream out = output();
+            writeEntry(out, UNDO, file, contents);
+            out.flush();
+            if (durability() == Durability.OP) {
+                _stream.getFD().sync();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Finish an interrupted transaction, if JOURNAL shows there was one:
+     *  apply its writes if it reached its commit point, and otherwise
+     *  restore the working-directory files it changed. */
+    @SuppressWarnings("try")
+    static void recover() {
+        if (!JOURNAL.exists()) {
+            return;
+        }
+        try (RepositoryLock lock = RepositoryLock.acquire(false)) {
+            if (!JOURNAL.exists()) {
+                return;
+            }
+            ArrayList<Entry> undo = new ArrayList<>();
+            ArrayList<Entry> redo = new ArrayList<>();
+            boolean committed = false;
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(JOURNAL)))) {
+                ArrayList<Entry> target = undo;
+                while (true) {
+                    byte tag = in.readByte();
+                    if (tag == END) {
+                        committed = true;
+                        break;
+                    } else if (tag == COMMIT) {
+                        target = redo;
+                    } else if (tag == APPEND) {
+                        Entry entry = readEntry(in);
+                        target.add(new Entry(entry._file, entry._contents,
+                                in.readLong()));
+                    } else {
+                        target.add(readEntry(in));
+                    }
+                }
+            } catch (EOFException excp) {
+                committed = false;
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            if (committed) {
+                apply(redo);
+            } else {
+                for (int i = undo.size() - 1; i >= 0; i -= 1) {
+                    restore(undo.get(i));
+                }
+            }
+            JOURNAL.delete();
+        }
+    }
+
+    /** Append the held writes to JOURNAL, then apply them.  If applying
+     *  them fails, JOURNAL is left for recover(). */
+    private static void writeOut() {
+        if (_held.isEmpty() && _appends.isEmpty()) {
+            close();
+            JOURNAL.delete();
+            return;
+        }
+        ArrayList<Entry> redo = new ArrayList<>();
+        for (Map.Entry<File, byte[]> write : _held.entrySet()) {
+            redo.add(new Entry(write.getKey(), write.getValue()));
+        }
+        for (Map.Entry<File, byte[]> append : _appends.entrySet()) {
+            redo.add(new Entry(append.getKey(), append.getValue(),
+                    length(append.getKey())));
+        }
+        if (redo.size() > 1 || !_undo.isEmpty() || !_appends.isEmpty()) {
+            try {
+                DataOutputStream out = output();
+                out.writeByte(COMMIT);
+                for (Entry entry : redo) {
+                    if (entry._offset == ABSENT) {
+                        writeEntry(out, REDO, entry._file, entry._contents);
+                    } else {
+                        writeEntry(out, APPEND, entry._file,
+                                entry._contents);
+                        out.writeLong(entry._offset);
+                    }
+                }
+                out.writeByte(END);
+                out.flush();
+                if (durability() != Durability.NONE) {
+                    _stream.getFD().sync();
+                }
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        apply(redo);
+        syncPending();
+        close();
+        JOURNAL.delete();
+    }
+
+    /** Return the length FILE will have once the held writes, which are
+     *  applied before the appends, have been: 0 if the transaction has
+     *  deleted it. */
+    private static long length(File file) {
+        if (_held.containsKey(file)) {
+            byte[] contents = _held.get(file);
+            return contents == null ? 0 : contents.length;
+        }
+        return file.length();
+    }
+
+    /** Forget all state of the outermost transaction. */
+    private static void finish() {
+        close();
+        _held = null;
+        _appends = null;
+        _saved = null;
+        _undo = null;
+        _cache = null;
+    }
+
+    /** Write every entry of REDO to its file. */
+    private static void apply(ArrayList<Entry> redo) {
+        for (Entry entry : redo) {
+            if (entry._offset != ABSENT) {
+                appendAt(entry._file, entry._offset, entry._contents);
+            } else if (entry._contents == null) {
+                entry._file.delete();
+            } else {
+                atomicWriteContents(entry._file, entry._contents);
+            }
+        }
+    }
+
+    /** Write CONTENTS to FILE at OFFSET, cutting off anything after
+     *  OFFSET first, so that doing it twice is the same as doing it once.
+     *  Forces the data to disk according to durability(). */
+    private static void appendAt(File file, long offset, byte[] contents) {
+        file.getParentFile().mkdirs();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(Math.min(out.length(), offset));
+            out.seek(offset);
+            out.write(contents);
+            if (durability() == Durability.OP) {
+                out.getFD().sync();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Put the working file of ENTRY back to its recorded contents. */
+    private static void restore(Entry entry) {
+        if (entry._contents == null) {
+            entry._file.delete();
+        } else {
+            writeContents(entry._file, entry._contents);
+        }
+    }
+
+    /** Return a stream appending to JOURNAL, opening it if needed. */
+    private static DataOutputStream output() throws IOException {
+        if (_out == null) {
+            _stream = new FileOutputStream(JOURNAL, true);
+            _out = new DataOutputStream(new BufferedOutputStream(_stream));
+        }
+        return _out;
+    }
+
+    /** Close the stream on JOURNAL, if open. */
+    private static void close() {
+        if (_out != null) {
+            try {
+                _out.close();
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            } finally {
+                _out = null;
+                _stream = null;
+            }
+        }
+    }
+
+    /** Write a record tagged TAG for FILE with CONTENTS to OUT. */
+    private static void writeEntry(DataOutputStream out, byte tag, File file,
+                                   byte[] contents) throws IOException {
+        out.writeByte(tag);
+        out.writeUTF(file.getPath());
+        if (contents == null) {
+            out.writeInt(ABSENT);
+        } else {
+            out.writeInt(contents.length);
+            out.write(contents);
+        }
+    }
+
+    /** Return the entry whose tag has just been read from IN. */
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        File file = new File(in.readUTF());
+        int length = in.readInt();
+        byte[] contents = null;
+        if (length != ABSENT) {
+            contents = new byte[length];
+            in.readFully(contents);
+        }
+        return new Entry(file, contents);
+    }
+
+    /** Return true if DIR holds content-addressed objects, chunks or
+     *  commits. */
+    private static boolean isObjectDirectory(File dir) {
+        return dir != null && (dir.equals(Repository.OBJECTS)
+                || dir.equals(Repository.CHUNKS)
+                || dir.equals(Repository.COMMITS));
+    }
+
+    /** A file together with its contents, or null if it is absent; or
+     *  contents to be written to a file at an offset. */
+    private static class Entry {
+        /** An Entry for FILE with CONTENTS. */
+        Entry(File file, byte[] contents) {
+            this(file, contents, ABSENT);
+        }
+
+        /** An Entry appending CONTENTS to FILE at OFFSET. */
+        Entry(File file, byte[] contents, long offset) {
+            _file = file;
+            _contents = contents;
+            _offset = offset;
+        }
+
+        /** The file. */
+        private final File _file;
+        /** Its contents. */
+        private final byte[] _contents;
+        /** Where the contents go, or ABSENT to replace the file. */
+        private final long _offset;
+    }
+
+    /** State to return to when a nested transaction is rolled back. */
+    private static class Savepoint {
+        /** A Savepoint with writes HELD, appends APPENDS and UNDOSIZE
+         *  saved files. */
+        Savepoint(LinkedHashMap<File, byte[]> held,
+                  LinkedHashMap<File, byte[]> appends, int undoSize) {
+            _held = held;
+            _appends = appends;
+            _undoSize = undoSize;
+        }
+
+        /** Writes held when the transaction began. */
+        private final LinkedHashMap<File, byte[]> _held;
+        /** Appends held when the transaction began. */
+        private final LinkedHashMap<File, byte[]> _appends;
+        /** Number of working files saved when the transaction began. */
+        private final int _undoSize;
+    }
+
+    /** Savepoints of the open transactions, innermost first. */
+    private static final ArrayDeque<Savepoint> SAVEPOINTS = new ArrayDeque<>();
+    /** Writes held until commit, in order; null deletes a file. */
+    private static LinkedHashMap<File, byte[]> _held;
+    /** Bytes to append to files at commit, in order. */
+    private static LinkedHashMap<File, byte[]> _appends;
+    /** Working-directory files whose contents have been saved. */
+    private static HashSet<File> _saved;
+    /** Saved working-directory contents, in the order saved. */
+    private static ArrayList<Entry> _undo;
+    /** Contents of files read in a cached transaction, or null. */
+    private static HashMap<File, byte[]> _cache;
+    /** Stream appending to JOURNAL. */
+    private static FileOutputStream _stream;
+    /** Buffered view of _stream. */
+    private static DataOutputStream _out;
+}
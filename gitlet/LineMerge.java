@@ -0,0 +1,125 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/** Three-way merge of the lines of two versions of a file against their
+ *  common ancestor, in the manner of diff3.  Regions changed on only one
+ *  side, or changed identically on both, are taken as they are; only
+ *  regions changed differently on both sides are marked as conflicts.
+ *  @author Andrew Kaplan */
+class LineMerge {
+
+    /** Marker opening a conflict, followed by the current version. */
+    static final String CURRENT_MARKER = "<<<<<<< HEAD\n";
+    /** Marker between the current and given versions of a conflict. */
+    static final String SEPARATOR = "=======\n";
+    /** Marker closing a conflict. */
+    static final String GIVEN_MARKER = ">>>>>>>";
+
+    /** Merge CURR and GIVEN, both descended from SPLIT. */
+    LineMerge(String split, String curr, String given) {
+        String[] base = Diff.lines(split);
+        String[] ours = Diff.lines(curr);
+        String[] theirs = Diff.lines(given);
+        HashMap<String, Integer> symbols = new HashMap<>();
+        ArrayList<int[]> ourChanges = new Diff(base, ours, symbols).changes();
+        ArrayList<int[]> theirChanges =
+            new Diff(base, theirs, symbols).changes();
+
+        StringBuilder result = new StringBuilder();
+        int o = 0, i = 0, j = 0;
+        boolean endsInConflict = false;
+        while (i < ourChanges.size() || j < theirChanges.size()) {
+            // Gather every change on either side that overlaps or touches
+            // the region, growing it until nothing more does.
+            int start = Math.min(start(ourChanges, i), start(theirChanges, j));
+            int end = start;
+            int i1 = i, j1 = j;
+            boolean grew = true;
+            while (grew) {
+                grew = false;
+                if (i1 < ourChanges.size() && ourChanges.get(i1)[0] <= end) {
+                    end = Math.max(end, ourChanges.get(i1)[1]);
+                    i1 += 1;
+                    grew = true;
+                }
+                if (j1 < theirChanges.size()
+                        && theirChanges.get(j1)[0] <= end) {
+                    end = Math.max(end, theirChanges.get(j1)[1]);
+                    j1 += 1;
+                    grew = true;
+                }
+            }
+            append(result, base, o, start);
+            String mine = side(base, ours, ourChanges, i, i1, start, end);
+            String yours = side(base, theirs, theirChanges, j, j1, start, end);
+            endsInConflict = false;
+            if (i == i1) {
+                result.append(yours);
+            } else if (j == j1 || mine.equals(yours)) {
+                result.append(mine);
+            } else {
+                result.append(CURRENT_MARKER).append(mine).append(SEPARATOR)
+                    .append(yours).append(GIVEN_MARKER).append("\n");
+                _conflict = true;
+                endsInConflict = true;
+            }
+            o = end;
+            i = i1;
+            j = j1;
+        }
+        append(result, base, o, base.length);
+        if (endsInConflict && o == base.length) {
+            result.setLength(result.length() - 1);
+        }
+        _result = result.toString();
+    }
+
+    /** Return the merged text. */
+    String result() {
+        return _result;
+    }
+
+    /** Return true if the merged text contains conflicts. */
+    boolean conflict() {
+        return _conflict;
+    }
+
+    /** Return the first line of the base changed by CHANGES[K], or the
+     *  largest int if there is no such change. */
+    private static int start(ArrayList<int[]> changes, int k) {
+        return k < changes.size() ? changes.get(k)[0] : Integer.MAX_VALUE;
+    }
+
+    /** Return the text that one side has in place of BASE[START .. END),
+     *  where VERSION is that side's lines and CHANGES[FROM .. TO) are its
+     *  changes inside that region. */
+    private static String side(String[] base, String[] version,
+                               ArrayList<int[]> changes, int from, int to,
+                               int start, int end) {
+        StringBuilder text = new StringBuilder();
+        if (from == to) {
+            append(text, base, start, end);
+        } else {
+            int[] first = changes.get(from);
+            int[] last = changes.get(to - 1);
+            append(text, version, first[2] - (first[0] - start),
+                    last[3] + (end - last[1]));
+        }
+        return text.toString();
+    }
+
+    /** Append LINES[FROM .. TO) to TEXT. */
+    private static void append(StringBuilder text, String[] lines,
+                               int from, int to) {
+        for (int k = from; k < to; k += 1) {
+            text.append(lines[k]);
+        }
+    }
+
+    /** The merged text. */
+    private final String _result;
+    /** True if the merge left conflicts. */
+    private boolean _conflict;
+}
@@ -0,0 +1,114 @@
+package gitlet;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/** The limits given to log and global-log: at most -n COUNT commits,
+ *  none made before --since=DATE and none after --until=DATE.  A DATE is
+ *  YYYY-MM-DD, or YYYY-MM-DDTHH:MM:SS, in local time; a day given alone
+ *  runs from its first second to its last.
+ *  @author Andrew Kaplan */
+class LogFilter {
+
+    /** Parse the limits among the log call ARGS, which follow its
+     *  name. */
+    LogFilter(String[] args) {
+        for (int k = 1; k < args.length; k += 1) {
+            if (args[k].equals("-n") && k + 1 < args.length) {
+                k += 1;
+                try {
+                    _limit = Integer.parseInt(args[k]);
+                } catch (NumberFormatException excp) {
+                    throw new GitletException("Incorrect operands.");
+                }
+                if (_limit < 0) {
+                    throw new GitletException("Incorrect operands.");
+                }
+            } else if (args[k].startsWith("--since=")) {
+                _since = seconds(args[k].substring("--since=".length()),
+                                 false);
+            } else if (args[k].startsWith("--until=")) {
+                _until = seconds(args[k].substring("--until=".length()),
+                                 true);
+            } else {
+                throw new GitletException("Incorrect operands.");
+            }
+            _limited = true;
+        }
+    }
+
+    /** Return true if any limit was given. */
+    boolean limited() {
+        return _limited;
+    }
+
+    /** Return true if no more commits are to be shown. */
+    boolean done() {
+        return _shown >= _limit;
+    }
+
+    /** Count one commit shown. */
+    void shown() {
+        _shown += 1;
+    }
+
+    /** Return true if a commit made at TIME, in seconds since the epoch,
+     *  is before the range. */
+    boolean before(long time) {
+        return time < _since;
+    }
+
+    /** Return true if a commit made at TIME, in seconds since the epoch,
+     *  is after the range. */
+    boolean after(long time) {
+        return time > _until;
+    }
+
+    /** Return true if the range has a bound. */
+    boolean dated() {
+        return _since != Long.MIN_VALUE || _until != Long.MAX_VALUE;
+    }
+
+    /** Return the first second of the range. */
+    long since() {
+        return _since;
+    }
+
+    /** Return the last second of the range. */
+    long until() {
+        return _until;
+    }
+
+    /** Return the local DATE in seconds since the epoch: its last second
+     *  if END and it has no time of day, else its first. */
+    private static long seconds(String date, boolean end) {
+        ZoneId zone = ZoneId.systemDefault();
+        try {
+            if (date.contains("T")) {
+                return LocalDateTime.parse(date).atZone(zone)
+                    .toEpochSecond();
+            }
+            LocalDate day = LocalDate.parse(date);
+            if (end) {
+                return day.plusDays(1).atStartOfDay(zone).toEpochSecond()
+                    - 1;
+            }
+            return day.atStartOfDay(zone).toEpochSecond();
+        } catch (DateTimeParseException excp) {
+            throw new GitletException("Incorrect operands.");
+        }
+    }
+
+    /** True if any limit was given. */
+    private boolean _limited;
+    /** Most commits to show. */
+    private int _limit = Integer.MAX_VALUE;
+    /** Commits shown so far. */
+    private int _shown;
+    /** First second of the range. */
+    private long _since = Long.MIN_VALUE;
+    /** Last second of the range. */
+    private long _until = Long.MAX_VALUE;
+}
@@ -1,4 +1,12 @@
 package gitlet;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import static gitlet.Repository.*;
 
 
@@ -6,29 +14,96 @@ import static gitlet.Repository.*;
  *  @author Andrew Kaplan */
 public class Main {
 
-    /** Usage: java gitlet.Main ARGS, where ARGS contains
-     *  <COMMAND> <OPERAND> .... */
+    /** Usage: java gitlet.Main [--trace[=json]] ARGS, where ARGS contains
+     *  <COMMAND> <OPERAND> ....  With --trace, where the command spent its
+     *  time is reported on the standard error (see Trace). */
     public static void main(String... args) {
+        String[] command = args;
         try {
-            new Main(args);
+            command = Trace.options(args);
+            new Main(command);
         } catch (GitletException ex) {
+            Utils.syncPending();
+            Trace.report(command);
             System.err.print(ex.getMessage());
             System.exit(0);
         }
+        Utils.syncPending();
+        Trace.report(command);
     }
 
     /** Parse User ARGS to correct Gitlet command. */
+    @SuppressWarnings("try")
     private Main(String[] args) {
+        Utils.durability();
         if (args.length == 0) {
             throw new GitletException("Please enter a command.");
         } else if (args[0].equals("init") && args.length == 1) {
             uninitialized();
             new Repository();
             return;
+        } else if (args[0].equals("batch") && args.length == 1) {
+            initialized();
+            batch();
+            return;
         }
         initialized();
+        Journal.recover();
+        boolean readOnly = READ_ONLY.contains(args[0]);
+        try (RepositoryLock lock = RepositoryLock.acquire(readOnly)) {
+            if (readOnly) {
+                execute(args);
+            } else {
+                Journal.run(() -> execute(args));
+            }
+        }
+    }
+
+    /** Run each line of the standard input as a command in one Session,
+     *  reporting errors and carrying on. */
+    private static void batch() {
+        try (Session session = Session.open()) {
+            BufferedReader in =
+                new BufferedReader(new InputStreamReader(System.in));
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] command = words(line);
+                if (command.length == 0) {
+                    continue;
+                }
+                try {
+                    session.run(command);
+                } catch (GitletException ex) {
+                    System.err.println(ex.getMessage());
+                }
+                Trace.report(command);
+                Trace.reset();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the words of the batch command LINE.  Words are separated
+     *  by whitespace; a word in double quotes may contain whitespace.
+     *  Lines starting with # are comments and have no words. */
+    private static String[] words(String line) {
+        ArrayList<String> words = new ArrayList<>();
+        if (line.trim().startsWith("#")) {
+            return new String[0];
+        }
+        Matcher word = WORD.matcher(line);
+        while (word.find()) {
+            words.add(word.group(1) != null ? word.group(1) : word.group(2));
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /** Run the command given by ARGS on an initialized repository. */
+    static void execute(String[] args) {
         switch (args[0]) {
         case "add":
+            checkArgsLength(args.length, 2);
             add(args[1]);
             break;
         case "commit":
@@ -40,20 +115,17 @@ public class Main {
             rm(args[1]);
             break;
         case "log":
-            checkArgsLength(args.length, 1);
-            log();
+            log(args);
             break;
         case "global-log":
-            checkArgsLength(args.length, 1);
-            globalLog();
+            globalLog(args);
             break;
         case "find":
             checkArgsLength(args.length, 2);
             find(args[1]);
             break;
         case "status":
-            checkArgsLength(args.length, 1);
-            status();
+            status(args);
             break;
         case "checkout":
             checkout(args);
@@ -73,6 +145,56 @@ public class Main {
             checkArgsLength(args.length, 2);
             checkMerge(args[1]);
             break;
+        case "diff":
+            diff(args);
+            break;
+        case "gc":
+            gc(args);
+            break;
+        case "fsck":
+            fsck(args);
+            break;
+        case "reflog":
+            reflog(args);
+            break;
+        case "pack-refs":
+            checkArgsLength(args.length, 1);
+            packRefs();
+            break;
+        case "bundle":
+            bundle(args);
+            break;
+        case "unbundle":
+            unbundle(args);
+            break;
+        case "add-remote":
+            checkArgsLength(args.length, 3);
+            addRemote(args[1], args[2]);
+            break;
+        case "rm-remote":
+            checkArgsLength(args.length, 2);
+            rmRemote(args[1]);
+            break;
+        case "fetch":
+            fetch(args);
+            break;
+        case "deepen":
+            deepen(args);
+            break;
+        case "push":
+            checkArgsLength(args.length, 3);
+            push(args[1], args[2]);
+            break;
+        case "pull":
+            checkArgsLength(args.length, 3);
+            pull(args[1], args[2]);
+            break;
+        case "sparse-checkout":
+            sparseCheckout(args);
+            break;
+        case "stash":
+            stash(args);
+            break;
         default:
             throw new GitletException("No command with that name exists.");
         }
@@ -80,6 +202,16 @@ public class Main {
 
 
 
+    /** Commands that only read the repository, and so may run alongside
+     *  one another. */
+    private static final Set<String> READ_ONLY =
+        Set.of("log", "global-log", "find", "status", "diff", "fsck",
+               "reflog", "bundle");
+
+    /** A word of a batch command line: quoted, or not. */
+    private static final Pattern WORD =
+        Pattern.compile("\"([^\"]*)\"|(\\S+)");
+
     /** Throw GitletException if Repository is not initialized. */
     private static void initialized() {
         if (!MAIN_FOLDER.exists()) {
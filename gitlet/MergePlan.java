@@ -0,0 +1,253 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** The changes a merge makes to each file, worked out in a single pass
+ *  over the sorted file names of the split point, current and given
+ *  commits, and then applied to the working directory and staging area
+ *  together.  A file one side renamed (see Renames) is merged under its
+ *  new name, so that changes the other side made under the old name
+ *  follow it.
+ *  @author Andrew Kaplan */
+class MergePlan {
+
+    /** What a merge does to one file.  Files a merge leaves alone have no
+     *  Action. */
+    enum Action {
+        /** Check out and stage the given commit's version. */
+        TAKE_GIVEN,
+        /** Remove and untrack the file. */
+        REMOVE,
+        /** Merge the current and given versions line by line. */
+        MERGE,
+        /** Check out and stage the current commit's version, under the
+         *  name the given commit moved it to. */
+        TAKE_CURRENT
+    }
+
+    /** Plan the merge of GIVEN into CURR, whose split point is SPLIT. */
+    MergePlan(Commit split, Commit curr, Commit given) {
+        HashMap<String, String> s = new HashMap<>(split.data()),
+            c = new HashMap<>(curr.data()), g = new HashMap<>(given.data());
+        follow(new Renames(split.data(), given.data(), false,
+                           Renames.STORED), s, c, true);
+        follow(new Renames(split.data(), curr.data(), false,
+                           Renames.STORED), s, g, false);
+        String[] splitNames = sorted(s), currNames = sorted(c),
+            givenNames = sorted(g);
+        int i = 0, j = 0, k = 0;
+        while (i < splitNames.length || j < currNames.length
+                || k < givenNames.length) {
+            String name = least(least(at(splitNames, i), at(currNames, j)),
+                    at(givenNames, k));
+            String splitSha = null, currSha = null, givenSha = null;
+            if (name.equals(at(splitNames, i))) {
+                splitSha = s.get(name);
+                i += 1;
+            }
+            if (name.equals(at(currNames, j))) {
+                currSha = c.get(name);
+                j += 1;
+            }
+            if (name.equals(at(givenNames, k))) {
+                givenSha = g.get(name);
+                k += 1;
+            }
+            plan(name, splitSha, currSha, givenSha);
+        }
+    }
+
+    /** Carry out the plan: write the working directory and record the
+     *  merge result in STAGE.  Files outside the sparse checkout (see
+     *  Sparse) are only staged, unless they are left with conflicts.
+     *  Return true if some file was left with conflicts. */
+    boolean apply(StagingArea stage) {
+        boolean conflict = false;
+        Sparse sparse = Sparse.load();
+        for (Step step : _steps) {
+            File file = join(CWD, step._name);
+            boolean write = sparse.includes(step._name);
+            switch (step._action) {
+            case TAKE_GIVEN:
+                if (write) {
+                    readObject(join(OBJECTS, step._given), Blob.class)
+                        .writeTo(file);
+                }
+                stage.map().put(step._name, step._given);
+                break;
+            case REMOVE:
+                stage.map().remove(step._name);
+                stage.removed().add(step._name);
+                if (write && file.exists()) {
+                    restrictedDelete(file);
+                }
+                break;
+            case TAKE_CURRENT:
+                if (write) {
+                    readObject(join(OBJECTS, step._curr), Blob.class)
+                        .writeTo(file);
+                }
+                stage.map().put(step._name, step._curr);
+                break;
+            case MERGE:
+                LineMerge merged = new LineMerge(blobContents(step._split),
+                        blobContents(step._curr), blobContents(step._given));
+                Blob b;
+                if (write || merged.conflict()) {
+                    writeContents(file, merged.result());
+                    b = new Blob(file, true);
+                } else {
+                    b = scratchBlob(merged.result());
+                }
+                b.store();
+                stage.map().put(step._name, b.shaCode());
+                conflict |= merged.conflict();
+                break;
+            default:
+                throw new IllegalStateException("unknown merge action");
+            }
+        }
+        return conflict;
+    }
+
+    /** Record what to do with FILENAME, whose blobs in the split point,
+     *  current and given commits are SPLITSHA, CURRSHA and GIVENSHA (null
+     *  where absent). */
+    private void plan(String fileName, String splitSha, String currSha,
+                      String givenSha) {
+        String from = _moved.get(fileName);
+        if (from != null) {
+            _steps.add(new Step(from, Action.REMOVE, splitSha, currSha,
+                                null));
+        }
+        Action action;
+        if (Objects.equals(currSha, givenSha)
+                || Objects.equals(splitSha, givenSha)) {
+            if (from == null) {
+                return;
+            }
+            action = Objects.equals(currSha, givenSha) ? Action.TAKE_GIVEN
+                : Action.TAKE_CURRENT;
+        } else if (Objects.equals(splitSha, currSha)) {
+            action = givenSha == null ? Action.REMOVE : Action.TAKE_GIVEN;
+        } else {
+            action = Action.MERGE;
+        }
+        _steps.add(new Step(fileName, action, splitSha, currSha, givenSha));
+    }
+
+    /** Carry the renames RENAMES found on one side of the merge over to
+     *  the split point's files SPLIT and the other side's files OTHER, so
+     *  that all three name the file alike.  GIVEN is true if the renames
+     *  are the given commit's, whose old names must then be removed from
+     *  the current commit.  A rename is not followed if the other side
+     *  deleted or renamed the file, or has a file of the new name. */
+    private void follow(Renames renames, HashMap<String, String> split,
+                        HashMap<String, String> other, boolean given) {
+        for (Renames.Match match : renames.matches()) {
+            String from = match.source(), to = match.target();
+            if (!split.containsKey(from) || !other.containsKey(from)
+                    || split.containsKey(to) || other.containsKey(to)) {
+                continue;
+            }
+            split.put(to, split.remove(from));
+            other.put(to, other.remove(from));
+            if (given) {
+                _moved.put(to, from);
+            }
+        }
+    }
+
+    /** Return the Blob of CONTENTS, made by way of a scratch file in
+     *  Repository.TMP rather than the working directory. */
+    private static Blob scratchBlob(String contents) {
+        File scratch = null;
+        try {
+            TMP.mkdirs();
+            scratch = File.createTempFile("merge-", ".tmp", TMP);
+            Files.write(scratch.toPath(),
+                        contents.getBytes(StandardCharsets.UTF_8));
+            return new Blob(scratch, true);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            if (scratch != null) {
+                scratch.delete();
+            }
+        }
+    }
+
+    /** Return the file contents held by the blob with BLOBSHA, or the
+     *  empty string if BLOBSHA is null. */
+    private static String blobContents(String blobSha) {
+        if (blobSha == null) {
+            return "";
+        }
+        return readObject(join(OBJECTS, blobSha), Blob.class).fileContents();
+    }
+
+    /** Return the keys of DATA in sorted order. */
+    private static String[] sorted(HashMap<String, String> data) {
+        String[] names = data.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        return names;
+    }
+
+    /** Return NAMES[K], or null if K is past the end. */
+    private static String at(String[] names, int k) {
+        return k < names.length ? names[k] : null;
+    }
+
+    /** Return the lesser of A and B, either of which may be null for
+     *  "none". */
+    private static String least(String a, String b) {
+        if (a == null) {
+            return b;
+        } else if (b == null) {
+            return a;
+        }
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /** One planned change. */
+    private static class Step {
+        /** A Step doing ACTION to FILENAME, which has blobs SPLIT, CURR and
+         *  GIVEN. */
+        Step(String fileName, Action action, String split, String curr,
+             String given) {
+            _name = fileName;
+            _action = action;
+            _split = split;
+            _curr = curr;
+            _given = given;
+        }
+
+        /** File name. */
+        private final String _name;
+        /** What to do to it. */
+        private final Action _action;
+        /** Its blob in the split point, or null. */
+        private final String _split;
+        /** Its blob in the current commit, or null. */
+        private final String _curr;
+        /** Its blob in the given commit, or null. */
+        private final String _given;
+    }
+
+    /** Planned changes in file name order, each file the given commit
+     *  renamed preceded by the removal of its old name. */
+    private final ArrayList<Step> _steps = new ArrayList<>();
+    /** The old names in the current commit of the files the given commit
+     *  renamed, by their new names. */
+    private final HashMap<String, String> _moved = new HashMap<>();
+}
@@ -0,0 +1,315 @@
+package gitlet;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** Handle calls to diff from Repository: print the differences between
+ *  two snapshots of the files (the working directory, the staging area or
+ *  a commit) as unified diffs.  Files whose blob IDs agree are skipped
+ *  without being read, and each file's hunks are printed as the Diff
+ *  finds them.  With -M, a file deleted on one side and added on the
+ *  other with similar contents is shown as a rename (see Renames); with
+ *  -C, copies are shown too.
+ *  @author Andrew Kaplan */
+class Patch {
+
+    /** Parse the different diff calls and print the differences.
+     * @param args include [], [commit], [commit] [commit], --cached,
+     *             --cached [commit], each optionally after -M or -C */
+    Patch(String[] args) {
+        _out = new PrintWriter(System.out);
+        if (args.length > 1 && (args[1].equals("-M")
+                                || args[1].equals("-C"))) {
+            _copies = args[1].equals("-C");
+            _renames = true;
+            String[] rest = new String[args.length - 1];
+            rest[0] = args[0];
+            System.arraycopy(args, 2, rest, 1, rest.length - 1);
+            args = rest;
+        }
+        switch (args.length) {
+        case 1:
+            diff(index(), null);
+            break;
+        case 2:
+            if (args[1].equals("--cached")) {
+                diff(headCommit().data(), index());
+            } else {
+                diff(commit(args[1]).data(), null);
+            }
+            break;
+        case 3:
+            if (args[1].equals("--cached")) {
+                diff(commit(args[2]).data(), index());
+            } else {
+                diff(commit(args[1]).data(), commit(args[2]).data());
+            }
+            break;
+        default:
+            throw new GitletException("Incorrect operands.");
+        }
+        _out.flush();
+    }
+
+    /** Print the differences between the files OLD and NEW, each mapping
+     *  file names to blob IDs.  A null NEW stands for the working
+     *  directory, restricted to the files in OLD and the staging area,
+     *  where files outside the sparse checkout count as staged. */
+    private void diff(HashMap<String, String> old,
+                      HashMap<String, String> now) {
+        if (_renames) {
+            renamed(old, now == null ? working(old) : now);
+            return;
+        }
+        TreeSet<String> names = new TreeSet<>(old.keySet());
+        names.addAll(now == null ? index().keySet() : now.keySet());
+        for (String name : names) {
+            String oldSha = old.get(name);
+            if (now != null) {
+                String newSha = now.get(name);
+                if (!Objects.equals(oldSha, newSha)) {
+                    file(name, contents(oldSha), contents(newSha));
+                }
+                continue;
+            }
+            File file = join(CWD, name);
+            if (!file.isFile() && !_sparse.includes(name)) {
+                String indexSha = index().get(name);
+                if (!Objects.equals(oldSha, indexSha)) {
+                    file(name, contents(oldSha), contents(indexSha));
+                }
+            } else if (!file.isFile()) {
+                if (oldSha != null) {
+                    file(name, contents(oldSha), null);
+                }
+            } else {
+                Blob working = new Blob(file);
+                if (!Blob.matches(oldSha, working)) {
+                    file(name, contents(oldSha), working.fileContents());
+                }
+            }
+        }
+    }
+
+    /** As for diff, but with NOW never null, and showing files renamed
+     *  or copied from OLD to NOW as such. */
+    private void renamed(HashMap<String, String> old,
+                         HashMap<String, String> now) {
+        Renames renames = new Renames(old, now, _copies, this::blob);
+        HashSet<String> moved = new HashSet<>();
+        for (Renames.Match match : renames.matches()) {
+            if (!match.copy()) {
+                moved.add(match.source());
+            }
+        }
+        TreeSet<String> names = new TreeSet<>(old.keySet());
+        names.addAll(now.keySet());
+        for (String name : names) {
+            String oldSha = old.get(name), newSha = now.get(name);
+            Renames.Match match = renames.of(name);
+            if (match != null) {
+                file(match.source(), name, contents(old.get(match.source())),
+                     contents(newSha), match);
+            } else if (!Objects.equals(oldSha, newSha)
+                       && !(newSha == null && moved.contains(name))) {
+                file(name, contents(oldSha), contents(newSha));
+            }
+        }
+    }
+
+    /** Return the files of the working directory among those of OLD and
+     *  the staging area, mapped to the IDs of their contents, which
+     *  blob() can then read.  Staged files outside the sparse checkout
+     *  are taken as staged. */
+    private HashMap<String, String> working(HashMap<String, String> old) {
+        TreeSet<String> names = new TreeSet<>(old.keySet());
+        names.addAll(index().keySet());
+        HashMap<String, String> result = new HashMap<>();
+        for (String name : names) {
+            File file = join(CWD, name);
+            if (file.isFile()) {
+                Blob working = new Blob(file);
+                String blobSha = working.shaCode();
+                if (Blob.matches(old.get(name), working)) {
+                    blobSha = old.get(name);
+                } else if (Blob.matches(index().get(name), working)) {
+                    blobSha = index().get(name);
+                }
+                _working.put(blobSha, working);
+                result.put(name, blobSha);
+            } else if (!_sparse.includes(name)
+                       && index().containsKey(name)) {
+                result.put(name, index().get(name));
+            }
+        }
+        return result;
+    }
+
+    /** Print the differences between the versions BEFORE and AFTER of
+     *  the file NAME, either of which is null if the file is absent. */
+    private void file(String name, String before, String after) {
+        file(name, name, before, after, null);
+    }
+
+    /** Print the differences between the version BEFORE of the file
+     *  OLDNAME and the version AFTER of the file NEWNAME, either of which
+     *  is null if the file is absent.  MATCH is the rename or copy of
+     *  OLDNAME to NEWNAME, or null. */
+    private void file(String oldName, String newName, String before,
+                      String after, Renames.Match match) {
+        _out.println("diff --gitlet a/" + oldName + " b/" + newName);
+        if (match != null) {
+            String kind = match.copy() ? "copy" : "rename";
+            _out.println("similarity index " + match.score() + "%");
+            _out.println(kind + " from " + oldName);
+            _out.println(kind + " to " + newName);
+            if (before.equals(after)) {
+                return;
+            }
+        } else if (before == null) {
+            _out.println("new file");
+        } else if (after == null) {
+            _out.println("deleted file");
+        }
+        _out.println("--- " + (before == null ? NO_FILE : "a/" + oldName));
+        _out.println("+++ " + (after == null ? NO_FILE : "b/" + newName));
+        _a = Diff.lines(before == null ? "" : before);
+        _b = Diff.lines(after == null ? "" : after);
+        _hunk = new ArrayList<>();
+        new Diff(_a, _b).compare(this::change);
+        hunk();
+    }
+
+    /** Add the change of _a[AFROM .. ATO) to _b[BFROM .. BTO) to the
+     *  current hunk, first printing that hunk if the change is too far
+     *  from it to share context. */
+    private void change(int aFrom, int aTo, int bFrom, int bTo) {
+        if (!_hunk.isEmpty()
+                && aFrom - _hunk.get(_hunk.size() - 1)[1] > 2 * CONTEXT) {
+            hunk();
+        }
+        _hunk.add(new int[] {aFrom, aTo, bFrom, bTo});
+    }
+
+    /** Print the current hunk, if any, with its context, and start a new
+     *  one. */
+    private void hunk() {
+        if (_hunk.isEmpty()) {
+            return;
+        }
+        int[] first = _hunk.get(0);
+        int[] last = _hunk.get(_hunk.size() - 1);
+        int aStart = Math.max(0, first[0] - CONTEXT);
+        int bStart = first[2] - (first[0] - aStart);
+        int aEnd = Math.min(_a.length, last[1] + CONTEXT);
+        int bEnd = last[3] + (aEnd - last[1]);
+        _out.println("@@ -" + range(aStart, aEnd) + " +"
+                + range(bStart, bEnd) + " @@");
+        int a = aStart;
+        for (int[] change : _hunk) {
+            lines(' ', _a, a, change[0]);
+            lines('-', _a, change[0], change[1]);
+            lines('+', _b, change[2], change[3]);
+            a = change[1];
+        }
+        lines(' ', _a, a, aEnd);
+        _hunk.clear();
+    }
+
+    /** Print LINES[FROM .. TO), each preceded by PREFIX. */
+    private void lines(char prefix, String[] lines, int from, int to) {
+        for (int k = from; k < to; k += 1) {
+            _out.print(prefix);
+            _out.print(lines[k]);
+            if (!lines[k].endsWith("\n")) {
+                _out.println();
+                _out.println("\\ No newline at end of file");
+            }
+        }
+    }
+
+    /** Return the unified diff range of lines FROM .. TO (exclusive). */
+    private static String range(int from, int to) {
+        if (to - from == 1) {
+            return Integer.toString(from + 1);
+        } else if (to == from) {
+            return from + ",0";
+        }
+        return (from + 1) + "," + (to - from);
+    }
+
+    /** Return the file contents held by the blob with BLOBSHA, or null
+     *  if BLOBSHA is null. */
+    private String contents(String blobSha) {
+        if (blobSha == null) {
+            return null;
+        }
+        return blob(blobSha).fileContents();
+    }
+
+    /** Return the blob with BLOBSHA: one read from the working directory
+     *  by working(), or else a stored one. */
+    private Blob blob(String blobSha) {
+        Blob working = _working.get(blobSha);
+        return working != null ? working : Renames.STORED.apply(blobSha);
+    }
+
+    /** Return the current commit. */
+    private static Commit headCommit() {
+        return getHeadCommit(readObject(HEAD, Branch.class));
+    }
+
+    /** Return the commit named by NAME: a branch name or a (possibly
+     *  abbreviated) commit ID. */
+    private static Commit commit(String name) {
+        return readObject(join(COMMITS, Refs.resolve(name)), Commit.class);
+    }
+
+    /** Return the files as the next commit would have them: the current
+     *  commit's files less those marked for removal, plus the staged
+     *  files. */
+    private HashMap<String, String> index() {
+        if (_index != null) {
+            return _index;
+        }
+        HashMap<String, String> result = new HashMap<>(headCommit().data());
+        StagingArea stage = readObject(INDEX, StagingArea.class);
+        result.keySet().removeAll(stage.removed());
+        result.putAll(stage.map());
+        _index = result;
+        return result;
+    }
+
+    /** Lines of context printed around each change. */
+    private static final int CONTEXT = 3;
+    /** Name printed for the missing side of an added or deleted file. */
+    private static final String NO_FILE = "/dev/null";
+
+    /** Where the differences are printed. */
+    private final PrintWriter _out;
+    /** The sparse checkout, outside which files are not compared with
+     *  the working directory. */
+    private final Sparse _sparse = Sparse.load();
+    /** True if renames are shown (-M or -C). */
+    private boolean _renames;
+    /** True if copies are shown (-C). */
+    private boolean _copies;
+    /** Blobs of working files read by working(), by ID. */
+    private final HashMap<String, Blob> _working = new HashMap<>();
+    /** The files of the staging area, once index() has read them. */
+    private HashMap<String, String> _index;
+    /** Lines of the old version of the file being compared. */
+    private String[] _a;
+    /** Lines of the new version of the file being compared. */
+    private String[] _b;
+    /** Changes, as {aFrom, aTo, bFrom, bTo}, in the hunk being built. */
+    private ArrayList<int[]> _hunk;
+}
@@ -0,0 +1,179 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** The history of each branch's pointer: one fixed-size record for every
+ *  time it moved, appended to LOGS/BRANCH, so a branch's past positions
+ *  can be read back newest first, straight from the end of the file.
+ *  Each record holds the old and new commit IDs, the time in
+ *  milliseconds and the reason, cut to REASON_SIZE bytes.
+ *  @author Andrew Kaplan */
+class Reflog {
+
+    /** Directory holding the log of each branch. */
+    static final File LOGS = join(MAIN_FOLDER, "logs");
+
+    /** Bytes in the reason of a record. */
+    static final int REASON_SIZE = 40;
+    /** Bytes in a record: two IDs, a time and a reason. */
+    static final int RECORD_SIZE = 2 * UID_LENGTH + Long.BYTES + REASON_SIZE;
+    /** The old ID recorded when a branch is created. */
+    static final String NO_COMMIT = "0".repeat(UID_LENGTH);
+
+    /** Record that the branch BRANCHNAME moved from commit OLDID (NO_COMMIT
+     *  if it is new) to NEWID because of REASON. */
+    static void record(String branchName, String oldID, String newID,
+                       String reason) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(oldID.getBytes(StandardCharsets.US_ASCII));
+        record.put(newID.getBytes(StandardCharsets.US_ASCII));
+        record.putLong(System.currentTimeMillis());
+        record.put(truncate(reason));
+        Journal.append(join(LOGS, branchName), record.array());
+    }
+
+    /** Delete the log of BRANCHNAME. */
+    static void delete(String branchName) {
+        File log = join(LOGS, branchName);
+        if (Journal.exists(log)) {
+            Journal.delete(log);
+        }
+    }
+
+    /** Return every commit ID recorded in any branch's log. */
+    static TreeSet<String> commits() {
+        TreeSet<String> result = new TreeSet<>();
+        addCommits(LOGS, result);
+        result.remove(NO_COMMIT);
+        return result;
+    }
+
+    /** Add to RESULT every commit ID recorded in the logs in DIR and in
+     *  its subdirectories, which hold the logs of remote branches. */
+    private static void addCommits(File dir, TreeSet<String> result) {
+        File[] logs = dir.listFiles();
+        if (logs == null) {
+            return;
+        }
+        for (File log : logs) {
+            if (log.isDirectory()) {
+                addCommits(log, result);
+                continue;
+            }
+            // A log is only ever appended to or deleted, so one the
+            // transaction holds has been deleted.
+            byte[] disk = Journal.holds(log) ? new byte[0]
+                : readContents(log);
+            byte[] pending = Journal.appended(log);
+            for (byte[] records : new byte[][] {disk, pending}) {
+                for (int r = 0; r + RECORD_SIZE <= records.length;
+                     r += RECORD_SIZE) {
+                    result.add(new String(records, r, UID_LENGTH,
+                            StandardCharsets.US_ASCII));
+                    result.add(new String(records, r + UID_LENGTH,
+                            UID_LENGTH, StandardCharsets.US_ASCII));
+                }
+            }
+        }
+    }
+
+    /** Handle calls to reflog from Repository: print the positions of a
+     *  branch, newest first.
+     * @param args include [], [branch], -n [count], -n [count] [branch] */
+    static void show(String[] args) {
+        int limit = Integer.MAX_VALUE;
+        int k = 1;
+        if (args.length > 2 && args[1].equals("-n")) {
+            try {
+                limit = Integer.parseInt(args[2]);
+            } catch (NumberFormatException excp) {
+                throw new GitletException("Incorrect operands.");
+            }
+            k = 3;
+        }
+        if (args.length > k + 1) {
+            throw new GitletException("Incorrect operands.");
+        }
+        String branchName = args.length == k + 1 ? args[k]
+            : readObject(HEAD, Branch.class).getBranch();
+        if (!Refs.exists(branchName)) {
+            throw new GitletException
+            ("A branch with that name does not exist.");
+        }
+
+        byte[] pending = Journal.appended(join(LOGS, branchName));
+        int shown = 0;
+        for (int r = pending.length - RECORD_SIZE; r >= 0 && shown < limit;
+             r -= RECORD_SIZE) {
+            print(branchName, shown, Arrays.copyOfRange(pending, r,
+                    r + RECORD_SIZE));
+            shown += 1;
+        }
+        File log = join(LOGS, branchName);
+        if (!log.isFile() || Journal.holds(log)) {
+            return;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(log, "r")) {
+            byte[] block = new byte[BLOCK_RECORDS * RECORD_SIZE];
+            long end = in.length() / RECORD_SIZE;
+            while (end > 0 && shown < limit) {
+                long start = Math.max(0, end - BLOCK_RECORDS);
+                int count = (int) (end - start);
+                in.seek(start * RECORD_SIZE);
+                in.readFully(block, 0, count * RECORD_SIZE);
+                for (int r = count - 1; r >= 0 && shown < limit; r -= 1) {
+                    print(branchName, shown, Arrays.copyOfRange(block,
+                            r * RECORD_SIZE, (r + 1) * RECORD_SIZE));
+                    shown += 1;
+                }
+                end = start;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Print RECORD, the entry INDEX places back in the log of
+     *  BRANCHNAME. */
+    private static void print(String branchName, int index, byte[] record) {
+        String newID = new String(record, UID_LENGTH, UID_LENGTH,
+                StandardCharsets.US_ASCII);
+        int reasonStart = 2 * UID_LENGTH + Long.BYTES;
+        int reasonEnd = reasonStart;
+        while (reasonEnd < RECORD_SIZE && record[reasonEnd] != 0) {
+            reasonEnd += 1;
+        }
+        String reason = new String(record, reasonStart,
+                reasonEnd - reasonStart, StandardCharsets.UTF_8);
+        System.out.println(newID.substring(0, SHORT_LENGTH) + " "
+                + branchName + "@{" + index + "}: " + reason);
+    }
+
+    /** Return the UTF-8 bytes of REASON, cut to at most REASON_SIZE
+     *  bytes without splitting a character. */
+    private static byte[] truncate(String reason) {
+        byte[] bytes = reason.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= REASON_SIZE) {
+            return bytes;
+        }
+        int length = REASON_SIZE;
+        while ((bytes[length] & 0xC0) == 0x80) {
+            length -= 1;
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /** Characters of a commit ID shown. */
+    private static final int SHORT_LENGTH = 7;
+    /** Records read from the log at a time. */
+    private static final int BLOCK_RECORDS = 64;
+}
@@ -0,0 +1,293 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** The branches of the repository.  A branch is either loose, a Branch
+ *  object in its own file in REFS, or packed, a line "ID NAME" in
+ *  PACKED_REFS, whose lines are sorted by name so that one branch can be
+ *  found by binary search without reading the rest.  A loose branch
+ *  overrides a packed one of the same name.  New and moved branches are
+ *  written loose; pack() moves them all into PACKED_REFS.  The branches
+ *  fetched from a remote R are named R/BRANCH, and kept loose in the
+ *  subdirectory R of REFS.
+ *  @author Andrew Kaplan */
+class Refs {
+
+    /** File holding the packed branches. */
+    static final File PACKED_REFS = join(MAIN_FOLDER, "packed-refs");
+
+    /** Return the branch NAME, or null if there is none. */
+    static Branch read(String name) {
+        File loose = join(REFS, name);
+        if (Journal.exists(loose)) {
+            return readObject(loose, Branch.class);
+        }
+        String commitID = lookup(PACKED_REFS, name);
+        return commitID == null ? null : new Branch(name, commitID);
+    }
+
+    /** Return true if there is a branch NAME. */
+    static boolean exists(String name) {
+        return Journal.exists(join(REFS, name))
+            || lookup(PACKED_REFS, name) != null;
+    }
+
+    /** Return the ID of the commit named by NAME: a branch name or a
+     *  (possibly abbreviated) commit ID. */
+    static String resolve(String name) {
+        Branch branch = read(name);
+        if (branch != null) {
+            return branch.pointer();
+        }
+        if (name.isEmpty() || name.length() > UID_LENGTH) {
+            throw new GitletException
+            ("No commit with that id exists.");
+        }
+        String commitID = Checkout.getCommitID(name, name.length());
+        if (!join(COMMITS, commitID).exists()) {
+            throw new GitletException
+            ("No commit with that id exists.");
+        }
+        return commitID;
+    }
+
+    /** Write BRANCH, loose. */
+    static void write(Branch branch) {
+        File loose = join(REFS, branch.name());
+        loose.getParentFile().mkdir();
+        writeObject(loose, branch);
+    }
+
+    /** Return the branch NAME of the repository whose .gitlet directory
+     *  is DIR, or null if there is none. */
+    static Branch readFrom(File dir, String name) {
+        File loose = join(dir, REFS.getName(), name);
+        if (loose.isFile()) {
+            return readObject(loose, Branch.class);
+        }
+        String commitID = lookup(join(dir, PACKED_REFS.getName()), name);
+        return commitID == null ? null : new Branch(name, commitID);
+    }
+
+    /** Write BRANCH, loose, into the repository whose .gitlet directory
+     *  is DIR, straight away. */
+    static void writeTo(File dir, Branch branch) {
+        File loose = join(dir, REFS.getName(), branch.name());
+        loose.getParentFile().mkdir();
+        atomicWriteContents(loose, serialize(branch));
+    }
+
+    /** Delete the branch NAME, loose and packed. */
+    static void delete(String name) {
+        File loose = join(REFS, name);
+        if (Journal.exists(loose)) {
+            Journal.delete(loose);
+        }
+        if (lookup(PACKED_REFS, name) != null) {
+            TreeMap<String, String> packed = packed();
+            packed.remove(name);
+            writePacked(packed);
+        }
+    }
+
+    /** Return the names of all branches, sorted. */
+    static TreeSet<String> names() {
+        TreeSet<String> names = loose();
+        names.addAll(packed().keySet());
+        return names;
+    }
+
+    /** Return the names of all loose branches, sorted. */
+    private static TreeSet<String> loose() {
+        TreeSet<String> names = Journal.list(REFS);
+        File[] remotes = REFS.listFiles(File::isDirectory);
+        if (remotes != null) {
+            for (File remote : remotes) {
+                for (String name : Journal.list(remote)) {
+                    names.add(remote.getName() + "/" + name);
+                }
+            }
+        }
+        return names;
+    }
+
+    /** Move every loose branch into PACKED_REFS. */
+    static void pack() {
+        TreeMap<String, String> packed = packed();
+        for (String name : loose()) {
+            File loose = join(REFS, name);
+            packed.put(name, readObject(loose, Branch.class).pointer());
+            Journal.delete(loose);
+        }
+        writePacked(packed);
+    }
+
+    /** Return the commit ID of the branch NAME in the packed branch file
+     *  PACKEDREFS, or null. */
+    private static String lookup(File packedRefs, String name) {
+        if (Journal.holds(packedRefs)) {
+            if (!Journal.exists(packedRefs)) {
+                return null;
+            }
+            byte[] contents = Journal.read(packedRefs);
+            return search(new Text() {
+                @Override
+                public long length() {
+                    return contents.length;
+                }
+
+                @Override
+                public int read(long pos, byte[] buf) {
+                    int n = (int) Math.max(0,
+                            Math.min(buf.length, contents.length - pos));
+                    System.arraycopy(contents, (int) pos, buf, 0, n);
+                    return n;
+                }
+            }, name);
+        }
+        if (!packedRefs.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(packedRefs, "r")) {
+            return search(new Text() {
+                @Override
+                public long length() throws IOException {
+                    return file.length();
+                }
+
+                @Override
+                public int read(long pos, byte[] buf) throws IOException {
+                    file.seek(pos);
+                    return Math.max(0, file.read(buf));
+                }
+            }, name);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the commit ID on the line for NAME in the sorted packed
+     *  branches TEXT, or null if there is none.  Looks at O(log N)
+     *  lines. */
+    private static String search(Text text, String name) {
+        try {
+            long lo = 0, hi = text.length();
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                long start = lineStart(text, mid);
+                if (start >= hi) {
+                    hi = mid;
+                    continue;
+                }
+                String line = line(text, start);
+                int cmp = name.compareTo(line.substring(UID_LENGTH + 1));
+                if (cmp == 0) {
+                    return line.substring(0, UID_LENGTH);
+                } else if (cmp < 0) {
+                    hi = start;
+                } else {
+                    lo = start + line.getBytes(StandardCharsets.UTF_8).length
+                        + 1;
+                }
+            }
+            return null;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the position of the first line of TEXT starting at or after
+     *  POS, or the length of TEXT if there is none. */
+    private static long lineStart(Text text, long pos) throws IOException {
+        if (pos == 0) {
+            return 0;
+        }
+        byte[] buf = new byte[BUFFER_SIZE];
+        for (long at = pos - 1;; at += buf.length) {
+            int n = text.read(at, buf);
+            if (n <= 0) {
+                return text.length();
+            }
+            for (int k = 0; k < n; k += 1) {
+                if (buf[k] == '\n') {
+                    return at + k + 1;
+                }
+            }
+        }
+    }
+
+    /** Return the line of TEXT starting at START, without its
+     *  newline. */
+    private static String line(Text text, long start) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buf = new byte[BUFFER_SIZE];
+        for (long at = start;; at += buf.length) {
+            int n = text.read(at, buf);
+            int end = 0;
+            while (end < n && buf[end] != '\n') {
+                end += 1;
+            }
+            bytes.write(buf, 0, end);
+            if (end < n || n <= 0) {
+                break;
+            }
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    /** Return all packed branches, mapping names to commit IDs. */
+    private static TreeMap<String, String> packed() {
+        TreeMap<String, String> packed = new TreeMap<>();
+        if (!Journal.exists(PACKED_REFS)) {
+            return packed;
+        }
+        String text =
+            new String(Journal.read(PACKED_REFS), StandardCharsets.UTF_8);
+        for (String line : text.split("\n")) {
+            if (!line.isEmpty()) {
+                packed.put(line.substring(UID_LENGTH + 1),
+                        line.substring(0, UID_LENGTH));
+            }
+        }
+        return packed;
+    }
+
+    /** Replace the packed branches with PACKED, mapping names to commit
+     *  IDs. */
+    private static void writePacked(TreeMap<String, String> packed) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, String> entry : packed.entrySet()) {
+            text.append(entry.getValue()).append(' ')
+                .append(entry.getKey()).append('\n');
+        }
+        byte[] contents = text.toString().getBytes(StandardCharsets.UTF_8);
+        if (Journal.active()) {
+            Journal.write(PACKED_REFS, contents);
+        } else {
+            atomicWriteContents(PACKED_REFS, contents);
+        }
+    }
+
+    /** Random access to the bytes of the packed branches. */
+    private interface Text {
+        /** Return the number of bytes. */
+        long length() throws IOException;
+
+        /** Read up to BUF.length bytes from POS into BUF and return how
+         *  many were read: 0 at the end. */
+        int read(long pos, byte[] buf) throws IOException;
+    }
+
+    /** Bytes read at a time while looking for a line. */
+    private static final int BUFFER_SIZE = 128;
+}
@@ -0,0 +1,472 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** Other repositories on the same filesystem, known by name, that
+ *  branches can be fetched from and pushed to.  Both directions negotiate
+ *  the same way: the sender walks back from the branch it is sending and
+ *  stops at every commit the receiver already has, since the receiver
+ *  then has all of that commit's history too.  Only the commits passed,
+ *  with the blobs and chunks the receiver lacks, are sent, hard-linked
+ *  where the filesystem allows and copied where it does not.  They are
+ *  sent chunks and blobs first and commits parents first, so that the
+ *  receiver never holds a commit whose history is incomplete.  A fetch
+ *  given a depth sends only the commits that many generations from the
+ *  tip, and the commits it stops at become graft points of the receiver
+ *  (see Shallow); deepen later fetches the history behind them.
+ *  @author Andrew Kaplan */
+class Remote {
+
+    /** File holding the remotes: lines "NAME PATH", sorted by name. */
+    static final File REMOTES = join(MAIN_FOLDER, "remotes");
+
+    /** Record the repository whose .gitlet directory is at PATH, with
+     *  "/" separating its parts, as the remote NAME. */
+    static void add(String name, String path) {
+        if (name.isEmpty() || name.contains("/")) {
+            throw new GitletException("Invalid remote name.");
+        }
+        TreeMap<String, String> remotes = remotes();
+        if (remotes.containsKey(name)) {
+            throw new GitletException
+            ("A remote with that name already exists.");
+        }
+        path = path.replace("/", File.separator);
+        if (isSelf(new File(path))) {
+            throw new GitletException("A remote cannot be this repository.");
+        }
+        remotes.put(name, path);
+        writeRemotes(remotes);
+    }
+
+    /** Forget the remote NAME and the branches fetched from it. */
+    static void remove(String name) {
+        TreeMap<String, String> remotes = remotes();
+        if (remotes.remove(name) == null) {
+            throw new GitletException
+            ("A remote with that name does not exist.");
+        }
+        writeRemotes(remotes);
+        String current = readObject(HEAD, Branch.class).getBranch();
+        for (String branchName : Refs.names()) {
+            if (branchName.startsWith(name + "/")
+                    && !branchName.equals(current)) {
+                Refs.delete(branchName);
+                Reflog.delete(branchName);
+            }
+        }
+    }
+
+    /** Handle the fetch call ARGS: "[--depth=N] NAME BRANCHNAME". */
+    static void fetch(String[] args) {
+        int depth = 0;
+        int k = 1;
+        if (args.length == 4 && args[1].startsWith("--depth=")) {
+            depth = count(args[1].substring("--depth=".length()));
+            k = 2;
+        }
+        if (args.length != k + 2) {
+            throw new GitletException("Incorrect operands.");
+        }
+        fetch(args[k], args[k + 1], depth);
+    }
+
+    /** Copy the branch BRANCHNAME of the remote NAME, with the history
+     *  this repository lacks, into the branch NAME/BRANCHNAME.  Unless
+     *  DEPTH is 0, only the commits fewer than DEPTH generations from the
+     *  tip are copied.  Nothing is copied if the branch would have to move
+     *  and is the current one, since copied objects bypass the Journal. */
+    @SuppressWarnings("try")
+    static void fetch(String name, String branchName, int depth) {
+        File dir = directory(name);
+        String trackingName = name + "/" + branchName;
+        Branch tracking = Refs.read(trackingName);
+        String current = readObject(HEAD, Branch.class).getBranch();
+        String tipID;
+        try (FileChannel lock = RepositoryLock.lock(lockFile(dir), true)) {
+            Branch branch = Refs.readFrom(dir, branchName);
+            if (branch == null) {
+                throw new GitletException
+                ("That remote does not have that branch.");
+            }
+            tipID = branch.pointer();
+            if (current.equals(trackingName) && (tracking == null
+                    || !tracking.pointer().equals(tipID))) {
+                throw new GitletException
+                ("Cannot update the current branch.");
+            }
+            send(dir, MAIN_FOLDER, tipID, depth);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+
+        if (tracking != null && tracking.pointer().equals(tipID)) {
+            return;
+        }
+        Refs.write(new Branch(trackingName, tipID));
+        Reflog.record(trackingName,
+                tracking == null ? Reflog.NO_COMMIT : tracking.pointer(),
+                tipID, "fetch: " + name + " " + branchName);
+    }
+
+    /** Send the branch BRANCHNAME, with the history the remote NAME
+     *  lacks, to that remote, and point its branch BRANCHNAME at it.  The
+     *  remote's branch must be in the history of the one sent. */
+    @SuppressWarnings("try")
+    static void push(String name, String branchName) {
+        Branch branch = Refs.read(branchName);
+        if (branch == null) {
+            throw new GitletException
+            ("A branch with that name does not exist.");
+        }
+        File dir = directory(name);
+        try (FileChannel lock = RepositoryLock.lock(lockFile(dir), false)) {
+            Branch remote = Refs.readFrom(dir, branchName);
+            if (remote != null
+                    && !isAncestor(remote.pointer(), branch.pointer())) {
+                throw new GitletException
+                ("Please pull down remote changes before pushing.");
+            }
+            if (remote != null
+                    && remote.pointer().equals(branch.pointer())) {
+                return;
+            }
+            send(MAIN_FOLDER, dir, branch.pointer(), 0);
+            Refs.writeTo(dir, new Branch(branchName, branch.pointer()));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Fetch the branch BRANCHNAME of the remote NAME and merge it into
+     *  the current branch. */
+    static void pull(String name, String branchName) {
+        fetch(name, branchName, 0);
+        checkMerge(name + "/" + branchName);
+    }
+
+    /** Handle the deepen call ARGS: "NAME DEPTH" fetches DEPTH more
+     *  generations of the history behind each graft point from the
+     *  remote NAME. */
+    @SuppressWarnings("try")
+    static void deepen(String[] args) {
+        if (args.length != 3) {
+            throw new GitletException("Incorrect operands.");
+        }
+        File dir = directory(args[1]);
+        int depth = count(args[2]);
+        if (!Shallow.load().isShallow()) {
+            throw new GitletException("Repository is not shallow.");
+        }
+        File remoteCommits = join(dir, COMMITS.getName());
+        try (FileChannel lock = RepositoryLock.lock(lockFile(dir), true)) {
+            for (String graftID : Shallow.load().grafts()) {
+                Commit graft = readObject(join(COMMITS, graftID),
+                                          Commit.class);
+                for (String parentID : new String[] {graft.parentID(),
+                                                     graft.merge()}) {
+                    if (!parentID.isEmpty()
+                            && join(remoteCommits, parentID).exists()) {
+                        send(dir, MAIN_FOLDER, parentID, depth);
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Shallow shallow = Shallow.load();
+        for (String graftID : shallow.grafts()) {
+            Commit graft = readObject(join(COMMITS, graftID), Commit.class);
+            if (complete(graft.parentID()) && complete(graft.merge())) {
+                shallow.remove(graftID);
+            }
+        }
+        shallow.save();
+    }
+
+    /** Send the commit TIPID and the history, blobs and chunks it needs
+     *  from the repository whose .gitlet directory is FROM to the one
+     *  whose .gitlet directory is TO, leaving out what TO already has.
+     *  Unless DEPTH is 0, only the commits fewer than DEPTH generations
+     *  from TIPID are sent.  Commits sent without their parents become
+     *  graft points of TO before they are sent. */
+    private static void send(File from, File to, String tipID, int depth) {
+        File fromCommits = join(from, COMMITS.getName());
+        File toCommits = join(to, COMMITS.getName());
+        File fromObjects = join(from, OBJECTS.getName());
+        File toObjects = join(to, OBJECTS.getName());
+        File fromChunks = join(from, CHUNKS.getName());
+        File toChunks = join(to, CHUNKS.getName());
+        String[] chunked = fromChunks.list();
+        boolean anyChunks = chunked != null && chunked.length > 0;
+
+        Shallow fromShallow = Shallow.load(from);
+        ArrayList<Commit> commits =
+            missing(fromCommits, toCommits, tipID, depth, fromShallow);
+        HashSet<String> seen = new HashSet<>();
+        for (Commit commit : commits) {
+            for (String blobSha : commit.data().values()) {
+                if (!seen.add(blobSha)
+                        || join(toObjects, blobSha).exists()) {
+                    continue;
+                }
+                if (anyChunks) {
+                    Blob blob =
+                        readObject(join(fromObjects, blobSha), Blob.class);
+                    if (blob.chunks() != null) {
+                        toChunks.mkdir();
+                        for (String chunkSha : blob.chunks()) {
+                            link(join(fromChunks, chunkSha), toChunks);
+                        }
+                    }
+                }
+                link(join(fromObjects, blobSha), toObjects);
+            }
+        }
+        graft(commits, fromShallow, to);
+        for (Commit commit : commits) {
+            link(join(fromCommits, commit.shaCode()), toCommits);
+        }
+    }
+
+    /** Make the members of COMMITS, about to be sent to the repository
+     *  whose .gitlet directory is TO, graft points there if they are
+     *  graft points in FROMSHALLOW or have a parent TO will lack. */
+    private static void graft(ArrayList<Commit> commits, Shallow fromShallow,
+                              File to) {
+        File toCommits = join(to, COMMITS.getName());
+        HashSet<String> sent = new HashSet<>();
+        for (Commit commit : commits) {
+            sent.add(commit.shaCode());
+        }
+        Shallow toShallow = Shallow.load(to);
+        boolean changed = false;
+        for (Commit commit : commits) {
+            boolean cut = fromShallow.cut(commit.shaCode());
+            for (String parentID : fromShallow.parents(commit)) {
+                cut |= !sent.contains(parentID)
+                    && !join(toCommits, parentID).exists();
+            }
+            if (cut && !toShallow.cut(commit.shaCode())) {
+                toShallow.add(commit.shaCode());
+                changed = true;
+            }
+        }
+        if (changed) {
+            toShallow.save();
+        }
+    }
+
+    /** Return the commits from which TIPID can be reached in the commit
+     *  directory FROM that are missing from the commit directory TO,
+     *  parents before children.  Walking stops at commits TO has, at the
+     *  graft points of SHALLOW, and, unless DEPTH is 0, at DEPTH
+     *  generations from TIPID. */
+    private static ArrayList<Commit> missing(File from, File to,
+                                             String tipID, int depth,
+                                             Shallow shallow) {
+        HashMap<String, Commit> near =
+            depth == 0 ? null : near(from, to, tipID, depth, shallow);
+        ArrayList<Commit> result = new ArrayList<>();
+        HashSet<String> visited = new HashSet<>();
+        ArrayDeque<Object> pending = new ArrayDeque<>();
+        pending.push(tipID);
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+            if (next instanceof Commit) {
+                result.add((Commit) next);
+                continue;
+            }
+            String commitID = (String) next;
+            if (commitID.isEmpty() || !visited.add(commitID)
+                    || join(to, commitID).exists()
+                    || near != null && !near.containsKey(commitID)) {
+                continue;
+            }
+            Commit commit = near != null ? near.get(commitID)
+                : readObject(join(from, commitID), Commit.class);
+            pending.push(commit);
+            ArrayList<String> parents = shallow.parents(commit);
+            for (int k = parents.size() - 1; k >= 0; k -= 1) {
+                pending.push(parents.get(k));
+            }
+        }
+        return result;
+    }
+
+    /** Return the commits of the commit directory FROM fewer than DEPTH
+     *  generations from TIPID, by ID, leaving out those the commit
+     *  directory TO has and not going past them or the graft points of
+     *  SHALLOW. */
+    private static HashMap<String, Commit> near(File from, File to,
+                                                String tipID, int depth,
+                                                Shallow shallow) {
+        HashMap<String, Commit> result = new HashMap<>();
+        ArrayList<String> generation = new ArrayList<>();
+        generation.add(tipID);
+        for (int d = 0; d < depth && !generation.isEmpty(); d += 1) {
+            ArrayList<String> older = new ArrayList<>();
+            for (String commitID : generation) {
+                if (result.containsKey(commitID)
+                        || join(to, commitID).exists()) {
+                    continue;
+                }
+                Commit commit =
+                    readObject(join(from, commitID), Commit.class);
+                result.put(commitID, commit);
+                older.addAll(shallow.parents(commit));
+            }
+            generation = older;
+        }
+        return result;
+    }
+
+    /** Return true if the commit ANCESTORID is TIPID or one of its
+     *  ancestors in this repository. */
+    private static boolean isAncestor(String ancestorID, String tipID) {
+        if (!join(COMMITS, ancestorID).exists()) {
+            return false;
+        }
+        Shallow shallow = Shallow.load();
+        HashSet<String> visited = new HashSet<>();
+        ArrayDeque<String> pending = new ArrayDeque<>();
+        pending.add(tipID);
+        while (!pending.isEmpty()) {
+            String commitID = pending.remove();
+            if (commitID.equals(ancestorID)) {
+                return true;
+            }
+            if (commitID.isEmpty() || !visited.add(commitID)) {
+                continue;
+            }
+            Commit commit = readObject(join(COMMITS, commitID), Commit.class);
+            pending.addAll(shallow.parents(commit));
+        }
+        return false;
+    }
+
+    /** Return true if COMMITID is empty or names a commit this repository
+     *  has. */
+    private static boolean complete(String commitID) {
+        return commitID.isEmpty() || join(COMMITS, commitID).exists();
+    }
+
+    /** Return the positive number of generations TEXT. */
+    private static int count(String text) {
+        try {
+            int result = Integer.parseInt(text);
+            if (result > 0) {
+                return result;
+            }
+        } catch (NumberFormatException excp) {
+            /* Reported below. */
+        }
+        throw new GitletException("Incorrect operands.");
+    }
+
+    /** Give FILE a second name in the directory DIR, copying it if it
+     *  cannot be hard-linked there, unless DIR has it already. */
+    private static void link(File file, File dir) {
+        File target = join(dir, file.getName());
+        if (target.exists()) {
+            return;
+        }
+        try {
+            Files.createLink(target.toPath(), file.toPath());
+        } catch (FileAlreadyExistsException excp) {
+            return;
+        } catch (IOException | UnsupportedOperationException excp) {
+            copy(file, dir);
+        }
+    }
+
+    /** Copy FILE into the directory DIR, which may be in a repository on
+     *  another filesystem.  The copy is written through a temporary file
+     *  in DIR's own repository, so the rename never crosses
+     *  filesystems. */
+    static void copy(File file, File dir) {
+        atomicWriteContents(join(dir, file.getName()), readContents(file));
+    }
+
+    /** Return the .gitlet directory of the remote NAME. */
+    private static File directory(String name) {
+        String path = remotes().get(name);
+        if (path == null) {
+            throw new GitletException
+            ("A remote with that name does not exist.");
+        }
+        File dir = new File(path);
+        if (!join(dir, COMMITS.getName()).isDirectory()) {
+            throw new GitletException("Remote directory not found.");
+        }
+        if (isSelf(dir)) {
+            throw new GitletException("A remote cannot be this repository.");
+        }
+        return dir;
+    }
+
+    /** Return true if DIR is this repository's .gitlet directory, under
+     *  any path.  Locking it again would fail, as this process holds its
+     *  lock already. */
+    private static boolean isSelf(File dir) {
+        try {
+            return dir.getCanonicalFile()
+                .equals(MAIN_FOLDER.getCanonicalFile());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the file on which the repository whose .gitlet directory is
+     *  DIR is locked. */
+    private static File lockFile(File dir) {
+        return join(dir, RepositoryLock.LOCK_FILE.getName());
+    }
+
+    /** Return the remotes, mapping names to paths. */
+    private static TreeMap<String, String> remotes() {
+        TreeMap<String, String> remotes = new TreeMap<>();
+        if (!Journal.exists(REMOTES)) {
+            return remotes;
+        }
+        String text =
+            new String(Journal.read(REMOTES), StandardCharsets.UTF_8);
+        for (String line : text.split("\n")) {
+            int space = line.indexOf(' ');
+            if (space > 0) {
+                remotes.put(line.substring(0, space),
+                        line.substring(space + 1));
+            }
+        }
+        return remotes;
+    }
+
+    /** Replace the remotes with REMOTES, mapping names to paths. */
+    private static void writeRemotes(TreeMap<String, String> remotes) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, String> entry : remotes.entrySet()) {
+            text.append(entry.getKey()).append(' ')
+                .append(entry.getValue()).append('\n');
+        }
+        byte[] contents = text.toString().getBytes(StandardCharsets.UTF_8);
+        if (Journal.active()) {
+            Journal.write(REMOTES, contents);
+        } else {
+            atomicWriteContents(REMOTES, contents);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package gitlet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static gitlet.Utils.*;
+
+/** The files of one snapshot that came from files of an earlier one under
+ *  another name: renamed, or, if asked, copied.  Files with the same blob
+ *  ID are paired first, by hashing alone.  The files left are compared by
+ *  the sets of their lines (or of their chunks, for large files): each
+ *  set is summed up by a MinHash signature, and the signatures are cut
+ *  into bands, so that only files sharing some band are ever compared.
+ *  Finding the pairs thus takes time near linear in the number of files
+ *  rather than quadratic.  A pair counts if at least MIN_SCORE percent of
+ *  the lines of the two files are shared.
+ *  @author Andrew Kaplan */
+class Renames {
+
+    /** Least similarity, in percent, of a rename or copy. */
+    static final int MIN_SCORE = 50;
+
+    /** Reads a Blob from Repository.OBJECTS given its ID. */
+    static final Function<String, Blob> STORED = blobSha ->
+        readObject(join(Repository.OBJECTS, blobSha), Blob.class);
+
+    /** A file of the later snapshot and the file it came from. */
+    static class Match {
+        /** TARGET came from SOURCE, whose contents are SCORE percent the
+         *  same, and which is still there if COPY. */
+        Match(String source, String target, int score, boolean copy) {
+            _source = source;
+            _target = target;
+            _score = score;
+            _copy = copy;
+        }
+
+        /** Return the name of the file in the earlier snapshot. */
+        String source() {
+            return _source;
+        }
+
+        /** Return the name of the file in the later snapshot. */
+        String target() {
+            return _target;
+        }
+
+        /** Return the percentage of the contents the two share. */
+        int score() {
+            return _score;
+        }
+
+        /** Return true if the source is a copy, not a rename. */
+        boolean copy() {
+            return _copy;
+        }
+
+        /** Name of the file in the earlier snapshot. */
+        private final String _source;
+        /** Name of the file in the later snapshot. */
+        private final String _target;
+        /** Similarity in percent. */
+        private final int _score;
+        /** True for a copy. */
+        private final boolean _copy;
+    }
+
+    /** Find the renames, and the copies if COPIES, between BEFORE and
+     *  AFTER, each mapping file names to blob IDs.  BLOBS reads the blob
+     *  with a given ID.  Renames are sought from the files of BEFORE that
+     *  AFTER lacks to the files of AFTER that BEFORE lacks; copies may
+     *  come from any file of BEFORE whose contents are the same, and from
+     *  the files AFTER changes or deletes whose contents are similar. */
+    Renames(Map<String, String> before, Map<String, String> after,
+            boolean copies, Function<String, Blob> blobs) {
+        _blobs = blobs;
+        TreeMap<String, String> deleted = new TreeMap<>(),
+            changed = new TreeMap<>(), added = new TreeMap<>();
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            String afterSha = after.get(entry.getKey());
+            if (afterSha == null) {
+                deleted.put(entry.getKey(), entry.getValue());
+            } else if (copies && !afterSha.equals(entry.getValue())) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, String> entry : after.entrySet()) {
+            if (!before.containsKey(entry.getKey())) {
+                added.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (deleted.isEmpty() && (!copies || added.isEmpty())) {
+            return;
+        }
+        exact(deleted, added, copies ? new TreeMap<>(before) : null);
+        if (!copies) {
+            changed.clear();
+        }
+        changed.putAll(deleted);
+        similar(changed, added, deleted);
+    }
+
+    /** Return the match of the file TARGET of the later snapshot, or null
+     *  if it has none. */
+    Match of(String target) {
+        return _matches.get(target);
+    }
+
+    /** Return the matches in order of their targets. */
+    ArrayList<Match> matches() {
+        return new ArrayList<>(_matches.values());
+    }
+
+    /** Pair the files of ADDED with the files of DELETED holding the same
+     *  blob, as renames, and, unless ALL is null, the rest with the files
+     *  of ALL holding the same blob, as copies.  Paired files are taken
+     *  out of ADDED and DELETED. */
+    private void exact(TreeMap<String, String> deleted,
+                       TreeMap<String, String> added,
+                       TreeMap<String, String> all) {
+        HashMap<String, ArrayDeque<String>> byBlob = new HashMap<>();
+        for (Map.Entry<String, String> entry : deleted.entrySet()) {
+            byBlob.computeIfAbsent(entry.getValue(), b -> new ArrayDeque<>())
+                .add(entry.getKey());
+        }
+        HashMap<String, String> anyByBlob = new HashMap<>();
+        if (all != null) {
+            for (Map.Entry<String, String> entry : all.entrySet()) {
+                anyByBlob.putIfAbsent(entry.getValue(), entry.getKey());
+            }
+        }
+        for (Map.Entry<String, String> entry
+                 : new ArrayList<>(added.entrySet())) {
+            String target = entry.getKey(), blobSha = entry.getValue();
+            ArrayDeque<String> sources = byBlob.get(blobSha);
+            String source = sources == null ? null : sources.poll();
+            boolean copy = source == null;
+            if (copy) {
+                source = anyByBlob.get(blobSha);
+            } else {
+                deleted.remove(source);
+            }
+            if (source != null) {
+                _matches.put(target,
+                        new Match(source, target, FULL_SCORE, copy));
+                added.remove(target);
+            }
+        }
+    }
+
+    /** Pair the files of TARGETS with similar files of SOURCES, best
+     *  pairs first, each target at most once.  A source in DELETED is
+     *  renamed by its first pair and copied by any later one; the other
+     *  sources are copied. */
+    private void similar(TreeMap<String, String> sources,
+                         TreeMap<String, String> targets,
+                         TreeMap<String, String> deleted) {
+        if (sources.isEmpty() || targets.isEmpty()) {
+            return;
+        }
+        ArrayList<String> sourceNames = new ArrayList<>(sources.keySet());
+        ArrayList<long[]> sourceShingles = new ArrayList<>();
+        HashMap<Long, ArrayList<Integer>> buckets = new HashMap<>();
+        for (int s = 0; s < sourceNames.size(); s += 1) {
+            long[] shingles = shingles(sources.get(sourceNames.get(s)));
+            sourceShingles.add(shingles);
+            if (shingles.length == 0) {
+                continue;
+            }
+            for (long band : bands(signature(shingles))) {
+                buckets.computeIfAbsent(band, b -> new ArrayList<>()).add(s);
+            }
+        }
+        ArrayList<Match> candidates = new ArrayList<>();
+        for (Map.Entry<String, String> entry : targets.entrySet()) {
+            long[] shingles = shingles(entry.getValue());
+            if (shingles.length == 0) {
+                continue;
+            }
+            HashSet<Integer> seen = new HashSet<>();
+            for (long band : bands(signature(shingles))) {
+                for (int s : buckets.getOrDefault(band, NONE)) {
+                    if (!seen.add(s)) {
+                        continue;
+                    }
+                    int score = score(sourceShingles.get(s), shingles);
+                    if (score >= MIN_SCORE) {
+                        candidates.add(new Match(sourceNames.get(s),
+                                entry.getKey(), score, false));
+                    }
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingInt(Match::score).reversed()
+                        .thenComparing(Match::target)
+                        .thenComparing(Match::source));
+        HashSet<String> renamed = new HashSet<>();
+        for (Match match : candidates) {
+            if (_matches.containsKey(match._target)) {
+                continue;
+            }
+            boolean copy = !deleted.containsKey(match._source)
+                || !renamed.add(match._source);
+            _matches.put(match._target, new Match(match._source,
+                    match._target, match._score, copy));
+        }
+    }
+
+    /** Return the sorted, distinct hashes of the lines of the blob with
+     *  ID BLOBSHA, or of its chunks if it is held in chunks. */
+    private long[] shingles(String blobSha) {
+        Blob blob = _blobs.apply(blobSha);
+        long[] result;
+        if (blob.chunks() != null) {
+            String[] chunks = blob.chunks();
+            result = new long[chunks.length];
+            for (int k = 0; k < chunks.length; k += 1) {
+                result[k] = Long.parseUnsignedLong(chunks[k].substring(0,
+                        HEX_DIGITS), HEX_RADIX);
+            }
+        } else {
+            String[] lines = Diff.lines(blob.fileContents());
+            result = new long[lines.length];
+            for (int k = 0; k < lines.length; k += 1) {
+                result[k] = hash(lines[k]);
+            }
+        }
+        Arrays.sort(result);
+        int n = 0;
+        for (int k = 0; k < result.length; k += 1) {
+            if (k == 0 || result[k] != result[k - 1]) {
+                result[n] = result[k];
+                n += 1;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** Return the MinHash signature of the non-empty set SHINGLES: for
+     *  each of SIGNATURE hash functions, the least hash of a member. */
+    private static long[] signature(long[] shingles) {
+        long[] result = new long[SIGNATURE];
+        Arrays.fill(result, Long.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < SIGNATURE; i += 1) {
+                result[i] = Math.min(result[i],
+                                     mix(shingle + (i + 1) * GOLDEN));
+            }
+        }
+        return result;
+    }
+
+    /** Return the keys of the BANDS bands of SIGNATURE, each combining
+     *  ROWS of its entries and the band's number. */
+    private static long[] bands(long[] signature) {
+        long[] result = new long[BANDS];
+        for (int b = 0; b < BANDS; b += 1) {
+            long key = b;
+            for (int r = 0; r < ROWS; r += 1) {
+                key = mix(key * GOLDEN + signature[b * ROWS + r]);
+            }
+            result[b] = key;
+        }
+        return result;
+    }
+
+    /** Return the Jaccard similarity of the sorted sets A and B, in
+     *  percent, rounded down. */
+    private static int score(long[] a, long[] b) {
+        if (Math.min(a.length, b.length) * FULL_SCORE
+                < Math.max(a.length, b.length) * MIN_SCORE) {
+            return 0;
+        }
+        int shared = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length;) {
+            if (a[i] == b[j]) {
+                shared += 1;
+                i += 1;
+                j += 1;
+            } else if (a[i] < b[j]) {
+                i += 1;
+            } else {
+                j += 1;
+            }
+        }
+        return shared * FULL_SCORE / (a.length + b.length - shared);
+    }
+
+    /** Return a 64-bit hash of LINE (FNV-1a over its characters). */
+    private static long hash(String line) {
+        long h = FNV_BASIS;
+        for (int k = 0; k < line.length(); k += 1) {
+            h = (h ^ line.charAt(k)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /** Return X with its bits well mixed (the SplitMix64 finalizer). */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+    /** Similarity of identical files. */
+    private static final int FULL_SCORE = 100;
+    /** Bands a signature is cut into. */
+    private static final int BANDS = 16;
+    /** Signature entries in each band.  Two files sharing half their
+     *  lines share some band with probability about 0.99. */
+    private static final int ROWS = 2;
+    /** Hash functions in a signature. */
+    private static final int SIGNATURE = BANDS * ROWS;
+    /** Odd constant spreading the hash functions apart. */
+    private static final long GOLDEN = 0x9e3779b97f4a7c15L;
+    /** FNV-1a offset basis. */
+    private static final long FNV_BASIS = 0xcbf29ce484222325L;
+    /** FNV-1a prime. */
+    private static final long FNV_PRIME = 0x100000001b3L;
+    /** Hex digits of a chunk ID used as its hash. */
+    private static final int HEX_DIGITS = 16;
+    /** Radix of chunk IDs. */
+    private static final int HEX_RADIX = 16;
+    /** An empty bucket. */
+    private static final ArrayList<Integer> NONE = new ArrayList<>();
+
+    /** Reads blobs by ID. */
+    private final Function<String, Blob> _blobs;
+    /** The match of each target file, in order of target. */
+    private final TreeMap<String, Match> _matches = new TreeMap<>();
+}
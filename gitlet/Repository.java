@@ -4,7 +4,9 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeSet;
 
 import static gitlet.Utils.*;
 import static gitlet.Commit.*;
@@ -23,18 +25,21 @@ class Repository {
     static final File COMMITS = join(MAIN_FOLDER, "commits");
     /** Contains Blob Objects. */
     static final File OBJECTS = join(MAIN_FOLDER, "objects");
-    /** Master file, written into REFS. */
-    static final File MASTER_FILE = join(REFS, "master");
+    /** Contains chunks of large files, named by their SHA-1. */
+    static final File CHUNKS = join(MAIN_FOLDER, "chunks");
     /** Head file. */
     static final File HEAD = join(MAIN_FOLDER, "HEAD");
     /** File containing Staging Area information. */
     static final File INDEX = join(MAIN_FOLDER, "INDEX");
+    /** Scratch space for files being written atomically. */
+    static final File TMP = join(MAIN_FOLDER, "tmp");
 
     /** Initialize repository. */
     Repository() {
         COMMITS.mkdirs();
         REFS.mkdirs();
         OBJECTS.mkdirs();
+        CHUNKS.mkdirs();
         Commit initialCommit = new Commit();
         writeObject(INDEX, new StagingArea());
 
@@ -42,7 +47,9 @@ class Repository {
         writeObject(commit, initialCommit);
 
         Branch master = new Branch("master", initialCommit.shaCode());
-        writeObject(MASTER_FILE, master);
+        Refs.write(master);
+        Reflog.record(master.name(), Reflog.NO_COMMIT, master.pointer(),
+                "commit (initial): " + initialCommit.message());
 
         _head = new Branch(master.name());
         writeObject(HEAD, _head);
@@ -57,35 +64,35 @@ class Repository {
             ("File does not exist.");
         }
 
-        Blob b = new Blob(file, fileName);
+        Blob b = new Blob(file, true);
         _head = readObject(HEAD, Branch.class);
         Commit commit = getHeadCommit(_head);
         _stagingArea = readObject(INDEX, StagingArea.class);
 
-        boolean staged = _stagingArea.map().containsKey(b.fileName());
-        boolean tracked = commit.data().containsKey(b.fileName());
+        boolean staged = _stagingArea.map().containsKey(fileName);
+        boolean tracked = commit.data().containsKey(fileName);
+        _stagingArea.removed().remove(fileName);
 
         if (tracked || staged) {
-            String commitBlobSha = commit.data().get(b.fileName());
-            if (tracked && commitBlobSha.equals(b.shaCode())) {
+            String commitBlobSha = commit.data().get(fileName);
+            if (tracked && Blob.matches(commitBlobSha, b)) {
                 if (staged) {
-                    _stagingArea.map().remove(b.fileName());
+                    _stagingArea.map().remove(fileName);
                 }
-                writeObject(join(OBJECTS, b.shaCode()), b);
             } else if (staged) {
-                String stagedBlobSha = _stagingArea.map().get(b.fileName());
-                if (b.shaCode().equals(stagedBlobSha)) {
+                String stagedBlobSha = _stagingArea.map().get(fileName);
+                if (Blob.matches(stagedBlobSha, b)) {
                     return;
                 }
-                writeObject(join(OBJECTS, b.shaCode()), b);
-                _stagingArea.map().put(b.fileName(), b.shaCode());
+                b.store();
+                _stagingArea.map().put(fileName, b.shaCode());
             } else {
-                writeObject(join(OBJECTS, b.shaCode()), b);
-                _stagingArea.map().put(b.fileName(), b.shaCode());
+                b.store();
+                _stagingArea.map().put(fileName, b.shaCode());
             }
         } else {
-            writeObject(join(OBJECTS, b.shaCode()), b);
-            _stagingArea.map().put(b.fileName(), b.shaCode());
+            b.store();
+            _stagingArea.map().put(fileName, b.shaCode());
         }
         writeObject(INDEX, _stagingArea);
     }
@@ -111,14 +118,14 @@ class Repository {
             if (args[4].equals("true")) {
                 System.out.println("Encountered a merge conflict. ");
             }
-            writeHeadUpdate(newCommit, _head);
-            _stagingArea.map().clear();
+            writeHeadUpdate(newCommit, _head, "commit (merge): " + mergeMsg);
+            _stagingArea.clear();
             writeObject(INDEX, _stagingArea);
         } else {
             newCommit = new Commit(msg, parentCommit.shaCode());
             if (!newCommit.data().equals(parentCommit.data())) {
-                writeHeadUpdate(newCommit, _head);
-                _stagingArea.map().clear();
+                writeHeadUpdate(newCommit, _head, "commit: " + msg);
+                _stagingArea.clear();
                 writeObject(INDEX, _stagingArea);
             } else {
                 throw new GitletException
@@ -142,11 +149,7 @@ class Repository {
                 _stagingArea.map().remove(fileName);
             }
             if (tracked) {
-                File blobFile = join(OBJECTS,
-                        commit.data().get(fileName));
-                Blob b = readObject(blobFile, Blob.class);
-                b.changeRmStatus();
-                writeObject(blobFile, b);
+                _stagingArea.removed().add(fileName);
                 File file = join(CWD, fileName);
                 if (file.exists()) {
                     Utils.restrictedDelete(file);
@@ -160,26 +163,62 @@ class Repository {
     }
 
 
-    /** Log the information of current Commit and all Parent Commits. */
-    static void log() {
+    /** Log the information of current Commit and all Parent Commits,
+     *  back to a graft point of a shallow repository, within the limits
+     *  ARGS give (see LogFilter).  The walk stops at the first commit
+     *  made before the range or once enough commits are shown. */
+    static void log(String[] args) {
+        LogFilter filter = new LogFilter(args);
         _head = readObject(HEAD, Branch.class);
-        File currBranchFile = join(REFS, _head.getBranch());
-        Branch currBranch = readObject(currBranchFile, Branch.class);
+        Branch currBranch = Refs.read(_head.getBranch());
         File currCommitFile = join(COMMITS, currBranch.pointer());
         Commit currCommit = readObject(currCommitFile, Commit.class);
-        printLog(currCommit);
-        while (!currCommit.parentID().equals("")) {
+        Shallow shallow = Shallow.load();
+        while (!filter.done()) {
+            long time = filter.dated() ? currCommit.time() : 0;
+            if (filter.before(time)) {
+                break;
+            } else if (!filter.after(time)) {
+                printLog(currCommit);
+                filter.shown();
+            }
+            if (currCommit.parentID().equals("")
+                    || shallow.cut(currCommit.shaCode())) {
+                break;
+            }
             File parentFile = join(COMMITS, currCommit.parentID());
             currCommit = readObject(parentFile, Commit.class);
-            printLog(currCommit);
         }
     }
 
-    /** Log the information of all Commits. */
-    static void globalLog() {
-        for (File commitFile : Objects.requireNonNull(COMMITS.listFiles())) {
-            Commit commit = readObject(commitFile, Commit.class);
-            printLog(commit);
+    /** Log the information of all Commits, or, if ARGS give limits (see
+     *  LogFilter), of the newest ones within them, which CommitDates
+     *  finds without reading the others.  The commits of stash entries
+     *  are left out. */
+    static void globalLog(String[] args) {
+        LogFilter filter = new LogFilter(args);
+        TreeSet<String> hidden = Stash.hidden();
+        if (!filter.limited()) {
+            for (File commitFile
+                     : Objects.requireNonNull(COMMITS.listFiles())) {
+                if (hidden.contains(commitFile.getName())) {
+                    continue;
+                }
+                Commit commit = readObject(commitFile, Commit.class);
+                printLog(commit);
+            }
+            return;
+        }
+        for (String commitID : CommitDates.load()
+                 .between(filter.since(), filter.until())) {
+            if (filter.done()) {
+                break;
+            }
+            if (hidden.contains(commitID)) {
+                continue;
+            }
+            printLog(readObject(join(COMMITS, commitID), Commit.class));
+            filter.shown();
         }
     }
 
@@ -188,23 +227,24 @@ class Repository {
         System.out.println("===");
         System.out.println("commit " + commit.shaCode());
         if (!commit.merge().equals("")) {
-            File parentFile = join(COMMITS, commit.parentID());
-            Commit parent = readObject(parentFile, Commit.class);
-            File mergeFile = join(COMMITS, commit.merge());
-            Commit mergeParent = readObject(mergeFile, Commit.class);
             System.out.println("Merge: "
-                    + parent.shaCode().substring(0, 6) + " "
-                    + mergeParent.shaCode().substring(0, 6));
+                    + commit.parentID().substring(0, 6) + " "
+                    + commit.merge().substring(0, 6));
         }
         System.out.println("Date: " + commit.timestamp());
         System.out.println(commit.message());
         System.out.println();
     }
 
-    /** Print Commit ID of all commits with COMMITMSG. */
+    /** Print Commit ID of all commits with COMMITMSG, other than those of
+     *  stash entries. */
     static void find(String commitMsg) {
         boolean found = false;
+        TreeSet<String> hidden = Stash.hidden();
         for (File commitFile : Objects.requireNonNull(COMMITS.listFiles())) {
+            if (hidden.contains(commitFile.getName())) {
+                continue;
+            }
             Commit commit = readObject(commitFile, Commit.class);
             if (commit.message().equals(commitMsg)) {
                 found = true;
@@ -217,14 +257,19 @@ class Repository {
         }
     }
 
-    /** Print status of the Repository to the terminal. */
-    static void status() {
+    /** Print status of the Repository to the terminal, as ARGS direct.
+     * @param args include [], -M (show staged renames), -C (show staged
+     *             renames and copies) */
+    static void status(String[] args) {
+        if (args.length > 2 || args.length == 2
+                && !args[1].equals("-M") && !args[1].equals("-C")) {
+            throw new GitletException("Incorrect operands.");
+        }
         _head = readObject(HEAD, Branch.class);
         _stagingArea = readObject(INDEX, StagingArea.class);
         String currBranchName = _head.getBranch();
         ArrayList<String> branches = new ArrayList<>();
-        for (File branchFile : Objects.requireNonNull(REFS.listFiles())) {
-            String branchName = branchFile.getName();
+        for (String branchName : Refs.names()) {
             if (branchName.equals(currBranchName)) {
                 branchName = "*" + branchName;
             }
@@ -232,49 +277,80 @@ class Repository {
         }
         ArrayList<String> modified = new ArrayList<>();
         ArrayList<String> add = new ArrayList<>();
-        for (String blobSha : _stagingArea.map().values()) {
-            File blobFile = join(OBJECTS, blobSha);
-            Blob b = readObject(blobFile, Blob.class);
-            if (checkDeleted(b)) {
-                modified.add(b.fileName() + " (deleted)");
-            } else if (checkModified(b)) {
-                modified.add(b.fileName() + " (modified)");
+        Sparse sparse = Sparse.load();
+        for (Map.Entry<String, String> entry
+                 : _stagingArea.map().entrySet()) {
+            String fileName = entry.getKey();
+            if (!sparse.includes(fileName)) {
+                add.add(fileName);
+            } else if (checkDeleted(fileName)) {
+                modified.add(fileName + " (deleted)");
+            } else if (checkModified(fileName, entry.getValue())) {
+                modified.add(fileName + " (modified)");
             } else {
-                add.add(b.fileName());
+                add.add(fileName);
             }
         }
         Commit commit = getHeadCommit(_head);
         ArrayList<String> remove = new ArrayList<>();
-        for (String blobSha : commit.data().values()) {
-            File blobFile = join(OBJECTS, blobSha);
-            Blob b = readObject(blobFile, Blob.class);
-            if (b.rm()) {
-                remove.add(b.fileName());
-            } else if (checkDeleted(b)) {
-                modified.add(b.fileName() + " (deleted)");
-            } else if (checkModified(b) && (!add.contains(b.fileName()))) {
-                modified.add(b.fileName() + " (modified)");
+        for (Map.Entry<String, String> entry : commit.data().entrySet()) {
+            String fileName = entry.getKey();
+            if (_stagingArea.removed().contains(fileName)) {
+                remove.add(fileName);
+            } else if (!sparse.includes(fileName)) {
+                continue;
+            } else if (checkDeleted(fileName)) {
+                modified.add(fileName + " (deleted)");
+            } else if (checkModified(fileName, entry.getValue())
+                       && !add.contains(fileName)) {
+                modified.add(fileName + " (modified)");
             }
         }
         ArrayList<String> untracked = new ArrayList<>();
-        for (File untrackedFile : Objects.requireNonNull(CWD.listFiles())) {
-            if (!untrackedFile.isDirectory()) {
-                String untrackedName = untrackedFile.getName();
-                if (!(commit.data().containsKey(untrackedName)
-                        || add.contains(untrackedName)
-                        || remove.contains(untrackedName)
-                        || modified.contains(untrackedName))) {
-                    untracked.add(untrackedName);
-                }
+        for (String untrackedName : Ignore.load().workingFiles()) {
+            if (!(commit.data().containsKey(untrackedName)
+                    || add.contains(untrackedName)
+                    || remove.contains(untrackedName)
+                    || modified.contains(untrackedName))) {
+                untracked.add(untrackedName);
+            }
+        }
+        if (args.length == 2) {
+            showRenames(commit, add, remove, args[1].equals("-C"));
+        }
+        ArrayList<ArrayList<String>> sections = new ArrayList<>();
+        sections.add(branches);
+        sections.add(add);
+        sections.add(remove);
+        sections.add(modified);
+        sections.add(untracked);
+        printStatus(sections);
+    }
+
+    /** Show each staged file new to COMMIT that came from a file of COMMIT
+     *  as "OLD -> NEW" in ADD, taking OLD out of REMOVE if it was renamed,
+     *  or adding " (copied)" if COPIES and it was copied. */
+    private static void showRenames(Commit commit, ArrayList<String> add,
+                                    ArrayList<String> remove,
+                                    boolean copies) {
+        HashMap<String, String> index = new HashMap<>(commit.data());
+        index.keySet().removeAll(_stagingArea.removed());
+        index.putAll(_stagingArea.map());
+        Renames renames = new Renames(commit.data(), index, copies,
+                                      Renames.STORED);
+        for (Renames.Match match : renames.matches()) {
+            int k = add.indexOf(match.target());
+            if (k < 0) {
+                continue;
             }
+            String shown = match.source() + " -> " + match.target();
+            if (match.copy()) {
+                shown += " (copied)";
+            } else {
+                remove.remove(match.source());
+            }
+            add.set(k, shown);
         }
-        ArrayList<ArrayList<String>> args = new ArrayList<>();
-        args.add(branches);
-        args.add(add);
-        args.add(remove);
-        args.add(modified);
-        args.add(untracked);
-        printStatus(args);
     }
 
     /** Correctly format status message from ARGS content. */
@@ -301,17 +377,16 @@ class Repository {
         System.out.println(status.toString());
     }
 
-    /** Return true if file represented by blob B has been deleted. */
-    private static Boolean checkDeleted(Blob b) {
-        File cwdBlobFile = join(CWD, b.fileName());
-        return !cwdBlobFile.exists();
+    /** Return true if the file FILENAME has been deleted. */
+    private static Boolean checkDeleted(String fileName) {
+        return !join(CWD, fileName).exists();
     }
 
-    /** Return true if represented by blob B has been modified. */
-    private static Boolean checkModified(Blob b) {
-        File cwdBlobFile = join(CWD, b.fileName());
-        Blob cwdBlob = new Blob(cwdBlobFile, b.fileName());
-        return !b.fileContents().equals(cwdBlob.fileContents());
+    /** Return true if the file FILENAME no longer holds the contents of
+     *  the blob BLOBSHA. */
+    private static Boolean checkModified(String fileName, String blobSha) {
+        Blob cwdBlob = new Blob(join(CWD, fileName));
+        return !Blob.matches(blobSha, cwdBlob);
     }
 
 
@@ -328,9 +403,10 @@ class Repository {
         Commit curr = getHeadCommit(_head);
 
         Branch newBranch = new Branch(branchName, curr.shaCode());
-        File file = join(REFS, newBranch.name());
-        if (!file.exists()) {
-            writeObject(file, newBranch);
+        if (!Refs.exists(newBranch.name())) {
+            Refs.write(newBranch);
+            Reflog.record(branchName, Reflog.NO_COMMIT, curr.shaCode(),
+                    "branch: Created from " + _head.getBranch());
         } else {
             throw new GitletException
             ("A branch with that name already exists.");
@@ -339,14 +415,14 @@ class Repository {
 
     /** Delete BRANCHNAME if HEAD does not point to branch. */
     static void rmBranch(String branchName) {
-        File file = join(REFS, branchName);
-        if (file.exists()) {
+        if (Refs.exists(branchName)) {
             _head = readObject(HEAD, Branch.class);
             if (_head.getBranch().equals(branchName)) {
                 throw new GitletException
                 ("Cannot remove the current branch.");
             }
-            file.delete();
+            Refs.delete(branchName);
+            Reflog.delete(branchName);
         } else {
             throw new GitletException
             ("A branch with that name does not exist.");
@@ -358,44 +434,113 @@ class Repository {
         new Checkout(args);
     }
 
+    /** Call Reflog class to print a branch's reflog as ARGS direct. */
+    static void reflog(String[] args) {
+        Reflog.show(args);
+    }
+
+    /** Move every branch into the packed branch file. */
+    static void packRefs() {
+        Refs.pack();
+    }
+
+    /** Call Bundle class to write the history named by ARGS to a file. */
+    static void bundle(String[] args) {
+        Bundle.create(args);
+    }
+
+    /** Call Bundle class to read the bundle named by ARGS into a branch. */
+    static void unbundle(String[] args) {
+        Bundle.unbundle(args);
+    }
+
+    /** Call Sparse class to set, list or disable the sparse checkout
+     *  patterns as ARGS direct. */
+    static void sparseCheckout(String[] args) {
+        Sparse.command(args);
+    }
+
+    /** Call Stash class to save, restore or list local changes as ARGS
+     *  direct. */
+    static void stash(String[] args) {
+        Stash.command(args);
+    }
+
+    /** Call Remote class to record the repository at PATH as the remote
+     *  NAME. */
+    static void addRemote(String name, String path) {
+        Remote.add(name, path);
+    }
+
+    /** Call Remote class to forget the remote NAME. */
+    static void rmRemote(String name) {
+        Remote.remove(name);
+    }
+
+    /** Call Remote class to copy the branch of a remote, as much of its
+     *  history as ARGS direct. */
+    static void fetch(String[] args) {
+        Remote.fetch(args);
+    }
+
+    /** Call Remote class to fetch the history behind the graft points
+     *  from the remote ARGS name. */
+    static void deepen(String[] args) {
+        Remote.deepen(args);
+    }
+
+    /** Call Remote class to send BRANCHNAME to the remote NAME. */
+    static void push(String name, String branchName) {
+        Remote.push(name, branchName);
+    }
+
+    /** Call Remote class to fetch BRANCHNAME from the remote NAME and
+     *  merge it. */
+    static void pull(String name, String branchName) {
+        Remote.pull(name, branchName);
+    }
+
+    /** Call Patch class to print the differences named by ARGS. */
+    static void diff(String[] args) {
+        new Patch(args);
+    }
+
+    /** Call GarbageCollector class to delete unreachable commits and
+     *  objects as ARGS direct. */
+    static void gc(String[] args) {
+        new GarbageCollector(args);
+    }
+
+    /** Call Verifier class to check the repository for damage, with
+     *  ARGS. */
+    static void fsck(String[] args) {
+        new Verifier(args);
+    }
+
     /** Check conditions to merge BRANCHNAME to current branch. */
     static void checkMerge(String branchName) {
+        _conflict = "false";
         _stagingArea = readObject(INDEX, StagingArea.class);
         _head = readObject(HEAD, Branch.class);
-        File currBranchFile = join(REFS, _head.getBranch());
-        Branch currBranch = readObject(currBranchFile, Branch.class);
+        Branch currBranch = Refs.read(_head.getBranch());
         File currCommitFile = join(COMMITS, currBranch.pointer());
         Commit currCommit = readObject(currCommitFile, Commit.class);
-        File givenBranchFile = join(REFS, branchName);
-        if (!givenBranchFile.exists()) {
+        Branch givenBranch = Refs.read(branchName);
+        if (givenBranch == null) {
             throw new GitletException
             ("A branch with that name does not exist.");
         }
 
-        Branch givenBranch = readObject(givenBranchFile, Branch.class);
         File givenCommitFile = join(COMMITS, givenBranch.pointer());
         Commit givenCommit = readObject(givenCommitFile, Commit.class);
-        File parentFile = join(COMMITS, currCommit.parentID());
-        Commit parent = readObject(parentFile, Commit.class);
-        if (!parent.data().isEmpty()) {
-            for (String blobSha : currCommit.data().values()) {
-                File blobFile = join(OBJECTS, blobSha);
-                Blob b = readObject(blobFile, Blob.class);
-                if (b.rm()) {
-                    throw new GitletException
-                    ("You have uncommitted changes.");
-                }
-            }
-        }
-
-        if (!_stagingArea.map().isEmpty()) {
+        if (!_stagingArea.isEmpty()) {
             throw new GitletException
             ("You have uncommitted changes.");
         }
 
-        for (File file : Objects.requireNonNull(CWD.listFiles())) {
-            if (!file.isDirectory()) {
-                String fileName = file.getName();
+        Sparse sparse = Sparse.load();
+        for (String fileName : Ignore.load().workingFiles()) {
+            if (sparse.includes(fileName)) {
                 Checkout.untrackedFile(currCommit, givenCommit, fileName);
             }
         }
@@ -408,7 +553,8 @@ class Repository {
     }
 
     /** Find the splitpoint of CURR and GIVEN from ancestors on
-     * CURRBRANCH and GIVENBRANCH. call merge on all 3 commits. */
+     * CURRBRANCH and GIVENBRANCH, then plan and apply the merge and
+     * commit it. */
     private static void splitPoint(Commit curr, Commit given,
                                    Branch givenBranch, Branch currBranch) {
 
@@ -416,6 +562,10 @@ class Repository {
                 givenAncestors(given, 0, new HashMap<>());
         assert (givenPath != null);
         String splitID = findSplitPoint(givenPath, curr);
+        if (splitID.equals("")) {
+            throw new GitletException
+            ("No common ancestor in the shallow history; deepen it.");
+        }
 
         if (splitID.equals(given.shaCode())) {
             System.out.println("Given branch is an ancestor "
@@ -423,121 +573,41 @@ class Repository {
             return;
         } else if (splitID.equals(curr.shaCode())) {
             currBranch.updatePointer(given.shaCode());
-            writeObject(join(REFS, currBranch.name()), currBranch);
+            Refs.write(currBranch);
+            Reflog.record(currBranch.name(), curr.shaCode(), given.shaCode(),
+                    "merge " + givenBranch.name() + ": Fast-forward");
             System.out.println("Current branch fast-forwarded.");
             return;
         }
         File splitFile = join(COMMITS, splitID);
         Commit split = readObject(splitFile, Commit.class);
 
-        ArrayList<String> allFileNames = new ArrayList<>(split.data().keySet());
-        allFileNames.addAll(curr.data().keySet());
-        allFileNames.addAll(given.data().keySet());
-        merge(allFileNames, split, curr, given);
+        MergePlan plan = new MergePlan(split, curr, given);
+        if (plan.apply(_stagingArea)) {
+            _conflict = "true";
+        }
+        writeObject(INDEX, _stagingArea);
         commit(new String[] {"commit", "Merged", givenBranch.name(),
                 currBranch.name(), _conflict});
     }
 
-    /** Merge ALLFILENAMES included in SPLIT, CURR, & GIVEN into new Commit. */
-    private static void merge(ArrayList<String> allFileNames,
-                              Commit split, Commit curr, Commit given) {
-        for (String fileName : allFileNames) {
-            if (split.data().containsKey(fileName)
-                    && curr.data().containsKey(fileName)
-                    && given.data().containsKey(fileName)) {
-                String splitBlob = split.data().get(fileName);
-                String currBlob = curr.data().get(fileName);
-                String givenBlob = given.data().get(fileName);
-
-                if (splitBlob.equals(currBlob) && splitBlob.equals(givenBlob)) {
-                    break;
-                } else if (currBlob.equals(givenBlob)) {
-                    break;
-                } else {
-                    mergeConflict(currBlob, givenBlob, fileName);
-                }
-            } else if (split.data().containsKey(fileName)
-                    && curr.data().containsKey(fileName)) {
-                String splitBlob = split.data().get(fileName);
-                String currBlob = curr.data().get(fileName);
-
-                if (splitBlob.equals(currBlob)) {
-                    rm(fileName);
-                    break;
-                }
-                mergeConflict(currBlob, "", fileName);
-            } else if (split.data().containsKey(fileName)
-                    && given.data().containsKey(fileName)) {
-                String splitBlob = split.data().get(fileName);
-                String givenBlob = given.data().get(fileName);
-
-                if (splitBlob.equals(givenBlob)) {
-                    break;
-                }
-                mergeConflict("", givenBlob, fileName);
-            } else if (curr.data().containsKey(fileName)
-                    && given.data().containsKey(fileName)) {
-                String currBlob = curr.data().get(fileName);
-                String givenBlob = given.data().get(fileName);
-
-                if (currBlob.equals(givenBlob)) {
-                    break;
-                }
-                mergeConflict(currBlob, givenBlob, fileName);
-            } else if (given.data().containsKey(fileName)) {
-                checkout(new String[]
-                    {"checkout", given.shaCode(), "--", fileName});
-                add(fileName);
-            }
-        }
-    }
-
-    /** Write file with FILENAME with contents from
-     *  blobs with CURRSHA and GIVENSHA into Working Directory. */
-    private static void mergeConflict(String currSha,
-                                      String givenSha, String fileName) {
-
-        File currFile = join(OBJECTS, currSha);
-        File givenFile = join(OBJECTS, givenSha);
-
-        String currFileContents = "";
-        String givenFileContents = "";
-        if (currFile.exists() && givenFile.exists()) {
-            Blob curr = readObject(currFile, Blob.class);
-            Blob given = readObject(givenFile, Blob.class);
-            currFileContents = curr.fileContents();
-            givenFileContents = given.fileContents();
-        } else if (currFile.exists()) {
-            Blob curr = readObject(currFile, Blob.class);
-            currFileContents = curr.fileContents();
-        } else if (givenFile.exists()) {
-            Blob given = readObject(givenFile, Blob.class);
-            givenFileContents = given.fileContents();
-        }
-        String mergeFileContents = "<<<<<<< HEAD" + "\n" + currFileContents
-                + "=======" + "\n" + givenFileContents + ">>>>>>>";
-        File mergeFile = join(CWD, fileName);
-        writeContents(mergeFile, mergeFileContents);
-        add(fileName);
-        _conflict = "true";
-    }
-
     /** Return Commit of HEAD pointer. */
     static Commit getHeadCommit(Branch head) {
-        File headBranchFile = join(REFS, head.getBranch());
-        Branch headBranch = readObject(headBranchFile, Branch.class);
+        Branch headBranch = Refs.read(head.getBranch());
         File commitFile = join(COMMITS, headBranch.pointer());
         return readObject(commitFile, Commit.class);
     }
 
-    /** Write COMMIT, current branch, and HEAD files. */
-    static void writeHeadUpdate(Commit commit, Branch head) {
+    /** Write COMMIT, current branch, and HEAD files, recording REASON in
+     *  the branch's reflog. */
+    static void writeHeadUpdate(Commit commit, Branch head, String reason) {
         File commitFile = join(COMMITS, commit.shaCode());
         writeObject(commitFile, commit);
-        File headBranchFile = join(REFS, head.getBranch());
-        Branch headBranch = readObject(headBranchFile, Branch.class);
+        Branch headBranch = Refs.read(head.getBranch());
+        Reflog.record(headBranch.name(), headBranch.pointer(),
+                commit.shaCode(), reason);
         headBranch.updatePointer(commit.shaCode());
-        writeObject(headBranchFile, headBranch);
+        Refs.write(headBranch);
         head.updateHead(headBranch.name());
         writeObject(HEAD, head);
     }
@@ -0,0 +1,111 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import static gitlet.Utils.*;
+
+/** Advisory lock on a Gitlet repository, held on LOCK_FILE for the length
+ *  of one command.  Read-only commands share the lock with one another;
+ *  commands that change the repository hold it exclusively.
+ *  @author Andrew Kaplan */
+class RepositoryLock implements AutoCloseable {
+
+    /** File on which the lock is taken. */
+    static final File LOCK_FILE = join(Repository.MAIN_FOLDER, "lock");
+    /** Default number of milliseconds to wait for the lock. */
+    static final long DEFAULT_TIMEOUT = 10000;
+    /** Milliseconds between attempts to take the lock. */
+    private static final long RETRY_INTERVAL = 20;
+
+    /** Take the repository lock, shared if SHARED and exclusive otherwise,
+     *  waiting up to timeout() milliseconds for other processes to release
+     *  it.  A lock already held by this process is re-entered. */
+    static RepositoryLock acquire(boolean shared) {
+        if (_holds > 0) {
+            if (!shared && _shared) {
+                throw new GitletException
+                ("Cannot modify the repository during a read-only command.");
+            }
+            _holds += 1;
+            return new RepositoryLock();
+        }
+        _channel = lock(LOCK_FILE, shared);
+        _shared = shared;
+        _holds = 1;
+        return new RepositoryLock();
+    }
+
+    /** Take a lock on FILE, shared if SHARED and exclusive otherwise,
+     *  waiting up to timeout() milliseconds for other processes to release
+     *  it, and return the channel holding it.  Closing the channel
+     *  releases the lock. */
+    static FileChannel lock(File file, boolean shared) {
+        long deadline = System.currentTimeMillis() + timeout();
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            while (channel.tryLock(0, Long.MAX_VALUE, shared) == null) {
+                if (System.currentTimeMillis() >= deadline) {
+                    channel.close();
+                    throw new GitletException
+                    ("Another Gitlet command is using this repository.");
+                }
+                Thread.sleep(RETRY_INTERVAL);
+            }
+            return channel;
+        } catch (IOException | InterruptedException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the number of milliseconds to wait for the lock, taken from
+     *  the system property gitlet.lockTimeout or else the environment
+     *  variable GITLET_LOCK_TIMEOUT. */
+    static long timeout() {
+        String value = System.getProperty("gitlet.lockTimeout",
+                System.getenv("GITLET_LOCK_TIMEOUT"));
+        if (value == null) {
+            return DEFAULT_TIMEOUT;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException excp) {
+            throw error("Invalid lock timeout: %s", value);
+        }
+    }
+
+    /** Release this hold on the lock.  When it is the last one, force
+     *  pending writes to disk and release the lock itself. */
+    @Override
+    public void close() {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        _holds -= 1;
+        if (_holds == 0) {
+            try {
+                syncPending();
+                _channel.close();
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            } finally {
+                _channel = null;
+            }
+        }
+    }
+
+    /** True once this hold has been released. */
+    private boolean _closed;
+
+    /** Number of unreleased holds on the lock in this process. */
+    private static int _holds;
+    /** True if the lock held by this process is shared. */
+    private static boolean _shared;
+    /** Channel holding the lock on LOCK_FILE while it is held. */
+    private static FileChannel _channel;
+}
@@ -0,0 +1,68 @@
+package gitlet;
+
+import static gitlet.Repository.*;
+
+/** A session on the Gitlet repository in the current directory, for
+ *  programs that run many commands in a row.  The session holds the
+ *  repository lock and one Journal transaction from open() to close(), so
+ *  HEAD, branches, the head commit and the staging area are read from
+ *  disk once and written back once, when the session is closed.  A command
+ *  that fails is rolled back on its own and leaves the session usable.
+ *  @author Andrew Kaplan */
+public class Session implements AutoCloseable {
+
+    /** Return a new Session on the repository in the current directory.
+     *  Other Gitlet commands wait until it is closed. */
+    public static Session open() {
+        if (!MAIN_FOLDER.exists()) {
+            throw new
+            GitletException("Not in an initialized Gitlet directory.");
+        }
+        Journal.recover();
+        RepositoryLock lock = RepositoryLock.acquire(false);
+        Journal.begin();
+        Journal.setCaching(true);
+        return new Session(lock);
+    }
+
+    /** A Session holding LOCK. */
+    private Session(RepositoryLock lock) {
+        _lock = lock;
+    }
+
+    /** Run the Gitlet command ARGS, as given to Main (e.g. "add",
+     *  "wug.txt"), printing its output to the standard output.  Throws
+     *  GitletException, having undone the command's changes, if the
+     *  command fails. */
+    public void run(String... args) {
+        if (_lock == null) {
+            throw new IllegalStateException("session is closed");
+        }
+        if (args.length == 0) {
+            throw new GitletException("Please enter a command.");
+        }
+        if (args[0].equals("init") || args[0].equals("batch")) {
+            throw new GitletException("Cannot run " + args[0]
+                    + " in a session.");
+        }
+        Journal.run(() -> Main.execute(args));
+    }
+
+    /** Write everything the session's commands changed to the repository
+     *  and release it. */
+    @Override
+    public void close() {
+        if (_lock == null) {
+            return;
+        }
+        try {
+            Journal.commit();
+        } finally {
+            _lock.close();
+            _lock = null;
+        }
+    }
+
+    /** The repository lock, or null once closed. */
+    private RepositoryLock _lock;
+}
@@ -0,0 +1,130 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.TreeSet;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** The graft points of a shallow repository: commits whose history has
+ *  not been fetched, listed one ID per line in SHALLOW_FILE.  Walks over
+ *  the history treat a graft point as a root and go no further, so log,
+ *  merge, gc, fsck, bundle and the remote commands only pay for the
+ *  commits the repository holds.  fetch --depth makes grafts, and deepen
+ *  fetches the history behind them and moves them back.  Without
+ *  SHALLOW_FILE the repository is complete.
+ *  @author Andrew Kaplan */
+class Shallow {
+
+    /** File holding the graft points, one commit ID per line. */
+    static final File SHALLOW_FILE = join(MAIN_FOLDER, "shallow");
+
+    /** The graft points GRAFTS of the repository whose .gitlet directory
+     *  is DIR. */
+    private Shallow(File dir, TreeSet<String> grafts) {
+        _dir = dir;
+        _grafts = grafts;
+    }
+
+    /** Return the graft points of this repository. */
+    static Shallow load() {
+        return load(MAIN_FOLDER);
+    }
+
+    /** Return the graft points of the repository whose .gitlet directory
+     *  is DIR. */
+    static Shallow load(File dir) {
+        File file = join(dir, SHALLOW_FILE.getName());
+        TreeSet<String> grafts = new TreeSet<>();
+        String text = null;
+        if (dir.equals(MAIN_FOLDER)) {
+            if (Journal.exists(file)) {
+                text = new String(Journal.read(file),
+                                  StandardCharsets.UTF_8);
+            }
+        } else if (file.isFile()) {
+            text = readContentsAsString(file);
+        }
+        if (text != null) {
+            for (String line : text.split("\n")) {
+                if (!line.isEmpty()) {
+                    grafts.add(line);
+                }
+            }
+        }
+        return new Shallow(dir, grafts);
+    }
+
+    /** Return true if the repository is shallow. */
+    boolean isShallow() {
+        return !_grafts.isEmpty();
+    }
+
+    /** Return true if the history of COMMITID is cut off there. */
+    boolean cut(String commitID) {
+        return _grafts.contains(commitID);
+    }
+
+    /** Return the IDs of the parents of COMMIT that walks go on to: none
+     *  if it is a graft point, else its parent and merge parent, if it
+     *  has them. */
+    ArrayList<String> parents(Commit commit) {
+        ArrayList<String> result = new ArrayList<>();
+        if (cut(commit.shaCode())) {
+            return result;
+        }
+        if (!commit.parentID().isEmpty()) {
+            result.add(commit.parentID());
+        }
+        if (!commit.merge().isEmpty()) {
+            result.add(commit.merge());
+        }
+        return result;
+    }
+
+    /** Return the graft points, in order. */
+    ArrayList<String> grafts() {
+        return new ArrayList<>(_grafts);
+    }
+
+    /** Make COMMITID a graft point. */
+    void add(String commitID) {
+        _grafts.add(commitID);
+    }
+
+    /** Make COMMITID an ordinary commit again. */
+    void remove(String commitID) {
+        _grafts.remove(commitID);
+    }
+
+    /** Write the graft points back, removing the file if there are
+     *  none.  This repository's go through the Journal. */
+    void save() {
+        File file = join(_dir, SHALLOW_FILE.getName());
+        StringBuilder text = new StringBuilder();
+        for (String commitID : _grafts) {
+            text.append(commitID).append('\n');
+        }
+        byte[] contents = text.toString().getBytes(StandardCharsets.UTF_8);
+        if (_dir.equals(MAIN_FOLDER) && Journal.active()) {
+            if (_grafts.isEmpty()) {
+                if (Journal.exists(file)) {
+                    Journal.delete(file);
+                }
+            } else {
+                Journal.write(file, contents);
+            }
+        } else if (_grafts.isEmpty()) {
+            file.delete();
+        } else {
+            atomicWriteContents(file, contents);
+        }
+    }
+
+    /** The .gitlet directory of the repository. */
+    private final File _dir;
+    /** The IDs of the graft points. */
+    private final TreeSet<String> _grafts;
+}
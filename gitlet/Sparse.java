@@ -0,0 +1,121 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** Sparse checkout: the patterns in SPARSE_FILE, in the syntax of
+ *  .gitletignore (see Ignore), name the tracked files kept in the working
+ *  directory.  Checkout, reset and merge only write, and status and diff
+ *  only examine, the files they match; the others stay in every commit
+ *  and in the staging area as they were, and are taken to be unchanged.
+ *  Without SPARSE_FILE every file is included.
+ *  @author Andrew Kaplan */
+class Sparse {
+
+    /** File holding the sparse-checkout patterns, one per line. */
+    static final File SPARSE_FILE = join(MAIN_FOLDER, "sparse-checkout");
+
+    /** Sparse checkout of the files matching PATTERNS, or of all files if
+     *  PATTERNS is null. */
+    private Sparse(ArrayList<String> patterns) {
+        _patterns = patterns;
+        _matcher = patterns == null ? null : new Ignore(patterns);
+    }
+
+    /** Return the sparse checkout in effect. */
+    static Sparse load() {
+        if (!Journal.exists(SPARSE_FILE)) {
+            return new Sparse(null);
+        }
+        String text =
+            new String(Journal.read(SPARSE_FILE), StandardCharsets.UTF_8);
+        return new Sparse(new ArrayList<>(Arrays.asList(text.split("\n"))));
+    }
+
+    /** Handle the sparse-checkout call ARGS: "set PATTERN ..." limits the
+     *  working directory to the files matching a PATTERN, "list" prints
+     *  the patterns and "disable" restores every file. */
+    static void command(String[] args) {
+        if (args.length >= 3 && args[1].equals("set")) {
+            ArrayList<String> patterns = new ArrayList<>(
+                    Arrays.asList(args).subList(2, args.length));
+            StringBuilder text = new StringBuilder();
+            for (String pattern : patterns) {
+                text.append(pattern).append('\n');
+            }
+            byte[] contents = text.toString().getBytes(StandardCharsets.UTF_8);
+            if (Journal.active()) {
+                Journal.write(SPARSE_FILE, contents);
+            } else {
+                atomicWriteContents(SPARSE_FILE, contents);
+            }
+            new Sparse(patterns).apply();
+        } else if (args.length == 2 && args[1].equals("list")) {
+            Sparse sparse = load();
+            if (sparse._patterns != null) {
+                for (String pattern : sparse._patterns) {
+                    System.out.println(pattern);
+                }
+            }
+        } else if (args.length == 2 && args[1].equals("disable")) {
+            if (Journal.exists(SPARSE_FILE)) {
+                Journal.delete(SPARSE_FILE);
+            }
+            new Sparse(null).apply();
+        } else {
+            throw new GitletException("Incorrect operands.");
+        }
+    }
+
+    /** Return true if the file PATH, relative to the working directory,
+     *  belongs in it: if a pattern matches PATH or one of the directories
+     *  it is in. */
+    boolean includes(String path) {
+        if (_matcher == null || _matcher.ignored(path, false)) {
+            return true;
+        }
+        for (int slash = path.indexOf('/'); slash >= 0;
+             slash = path.indexOf('/', slash + 1)) {
+            if (_matcher.ignored(path.substring(0, slash), true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Make the working directory hold the current commit's files that
+     *  this includes, and not the others.  Files with staged changes, and
+     *  excluded files that differ from the current commit, are left as
+     *  they are. */
+    private void apply() {
+        Commit head = getHeadCommit(readObject(HEAD, Branch.class));
+        StagingArea stage = readObject(INDEX, StagingArea.class);
+        for (Map.Entry<String, String> entry : head.data().entrySet()) {
+            String name = entry.getKey();
+            if (stage.map().containsKey(name)
+                    || stage.removed().contains(name)) {
+                continue;
+            }
+            File file = join(CWD, name);
+            if (includes(name)) {
+                if (!file.exists()) {
+                    readObject(join(OBJECTS, entry.getValue()), Blob.class)
+                        .writeTo(file);
+                }
+            } else if (Checkout.holds(file, entry.getValue())) {
+                restrictedDelete(file);
+            }
+        }
+    }
+
+    /** The patterns, or null if every file is included. */
+    private final ArrayList<String> _patterns;
+    /** The compiled patterns, or null if every file is included. */
+    private final Ignore _matcher;
+}
@@ -2,14 +2,25 @@ package gitlet;
 
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
 
-/** Staging Area for added Blob Objects.
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** Staging Area for added Blob Objects, and the names of tracked files
+ *  marked for removal by the next commit.
  * @author Andrew Kaplan */
 class StagingArea implements Serializable {
 
+    /** Fixed to the value computed before _removed was added, so that an
+     *  older INDEX can still be read. */
+    private static final long serialVersionUID = 876737703308631322L;
+
     /** StagingArea constructor. */
     StagingArea() {
         _map = new HashMap<>();
+        _removed = new TreeSet<>();
     }
 
     /** Return Map. */
@@ -17,6 +28,37 @@ class StagingArea implements Serializable {
         return _map;
     }
 
+    /** Return the names of the files marked for removal.  An INDEX
+     *  written before removals were recorded here takes them from the
+     *  marks rm then set on the current commit's blobs. */
+    TreeSet<String> removed() {
+        if (_removed == null) {
+            _removed = new TreeSet<>();
+            Commit head = getHeadCommit(readObject(HEAD, Branch.class));
+            for (Map.Entry<String, String> entry : head.data().entrySet()) {
+                if (readObject(join(OBJECTS, entry.getValue()), Blob.class)
+                        .removalMarked()) {
+                    _removed.add(entry.getKey());
+                }
+            }
+        }
+        return _removed;
+    }
+
+    /** Return true if nothing is staged or marked for removal. */
+    boolean isEmpty() {
+        return _map.isEmpty() && removed().isEmpty();
+    }
+
+    /** Unstage everything and unmark all removals. */
+    void clear() {
+        _map.clear();
+        removed().clear();
+    }
+
     /** HashMap instance of Blob fileNames --> Blob shaCodes. */
     private HashMap<String, String> _map;
+    /** Names of files marked for removal; null in an INDEX written before
+     *  removals were recorded here. */
+    private TreeSet<String> _removed;
 }
@@ -0,0 +1,279 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** A stack of saved local changes.  "stash push" records the staging
+ *  area and the working versions of the tracked files as two commits on
+ *  top of the current one: an index commit, and a work commit whose
+ *  merge parent is the index commit.  Both refer to blobs by ID, so only
+ *  contents the repository does not already hold are written.  The
+ *  working directory and staging area then go back to the current
+ *  commit, rewriting only the files the stash changed.  "stash pop"
+ *  brings the newest entry back, and "stash list" shows the entries.
+ *  STASH_FILE lists the work commits, newest first; gc keeps them.
+ *  Stash commits are not part of the history: global-log and find skip
+ *  those of the entries, and pop deletes those of the entry it drops
+ *  unless another entry or a reflog records them.  Identical pushes in
+ *  the same second make the same commits, so entries may share them.
+ *  @author Andrew Kaplan */
+class Stash {
+
+    /** File listing the work commits of the entries, newest first. */
+    static final File STASH_FILE = join(MAIN_FOLDER, "stash");
+
+    /** Handle the stash call ARGS: "push", or nothing, saves the local
+     *  changes, "pop" restores the newest saved ones and "list" prints
+     *  the entries. */
+    static void command(String[] args) {
+        if (args.length == 1
+                || args.length == 2 && args[1].equals("push")) {
+            push();
+        } else if (args.length == 2 && args[1].equals("pop")) {
+            pop();
+        } else if (args.length == 2 && args[1].equals("list")) {
+            ArrayList<String> entries = commits();
+            for (int k = 0; k < entries.size(); k += 1) {
+                File work = join(COMMITS, entries.get(k));
+                System.out.println("stash@{" + k + "}: "
+                        + (Journal.exists(work)
+                           ? readObject(work, Commit.class).message()
+                           : "missing commit " + entries.get(k)));
+            }
+        } else {
+            throw new GitletException("Incorrect operands.");
+        }
+    }
+
+    /** Return the IDs of the work commits of the entries, newest
+     *  first. */
+    static ArrayList<String> commits() {
+        ArrayList<String> result = new ArrayList<>();
+        if (!Journal.exists(STASH_FILE)) {
+            return result;
+        }
+        String text =
+            new String(Journal.read(STASH_FILE), StandardCharsets.UTF_8);
+        for (String line : text.split("\n")) {
+            if (!line.isEmpty()) {
+                result.add(line);
+            }
+        }
+        return result;
+    }
+
+    /** Return the IDs of the work and index commits of the entries,
+     *  leaving out the index commits of work commits that are missing. */
+    static TreeSet<String> hidden() {
+        TreeSet<String> result = new TreeSet<>();
+        for (String commitID : commits()) {
+            result.add(commitID);
+            File work = join(COMMITS, commitID);
+            if (Journal.exists(work)) {
+                result.add(readObject(work, Commit.class).merge());
+            }
+        }
+        return result;
+    }
+
+    /** Save the staging area and the tracked files of the working
+     *  directory as a new entry, and return both to the current
+     *  commit. */
+    private static void push() {
+        Branch head = readObject(HEAD, Branch.class);
+        Commit base = getHeadCommit(head);
+        StagingArea stage = readObject(INDEX, StagingArea.class);
+        HashMap<String, String> index = new HashMap<>(base.data());
+        index.keySet().removeAll(stage.removed());
+        index.putAll(stage.map());
+
+        Sparse sparse = Sparse.load();
+        HashMap<String, String> work = new HashMap<>();
+        for (Map.Entry<String, String> entry : index.entrySet()) {
+            String name = entry.getKey();
+            File file = join(CWD, name);
+            if (!sparse.includes(name)) {
+                work.put(name, entry.getValue());
+            } else if (file.isFile()) {
+                Blob b = new Blob(file, true);
+                if (Blob.matches(entry.getValue(), b)) {
+                    work.put(name, entry.getValue());
+                } else {
+                    b.store();
+                    work.put(name, b.shaCode());
+                }
+            }
+        }
+        if (index.equals(base.data()) && work.equals(index)) {
+            System.out.println("No local changes to save.");
+            return;
+        }
+        for (String name : base.data().keySet()) {
+            if (!index.containsKey(name) && sparse.includes(name)
+                    && join(CWD, name).exists()) {
+                throw new GitletException
+                ("There is an untracked file in the way; "
+                        + "delete it or add it first.");
+            }
+        }
+
+        String message = head.getBranch() + ": "
+            + base.shaCode().substring(0, SHORT_LENGTH) + " "
+            + base.message();
+        Commit indexCommit =
+            new Commit("index on " + message, base.shaCode(), "", index);
+        writeObject(join(COMMITS, indexCommit.shaCode()), indexCommit);
+        Commit workCommit = new Commit("WIP on " + message, base.shaCode(),
+                                       indexCommit.shaCode(), work);
+        writeObject(join(COMMITS, workCommit.shaCode()), workCommit);
+
+        restore(work, base.data(), sparse);
+        stage.clear();
+        writeObject(INDEX, stage);
+        ArrayList<String> entries = commits();
+        entries.add(0, workCommit.shaCode());
+        save(entries);
+        System.out.println("Saved working directory and index state "
+                + workCommit.message());
+    }
+
+    /** Apply the newest entry and drop it.  If the current commit is the
+     *  one the entry was made on, the working files and the staging area
+     *  are restored as they were.  Otherwise the entry's changes are
+     *  merged into the current commit, as by merge, and left staged; if
+     *  that conflicts, the entry is kept. */
+    private static void pop() {
+        ArrayList<String> entries = commits();
+        if (entries.isEmpty()) {
+            throw new GitletException("No stash entries found.");
+        }
+        File workFile = join(COMMITS, entries.get(0));
+        if (!Journal.exists(workFile) || !Journal.exists(
+                join(COMMITS, readObject(workFile, Commit.class).merge()))) {
+            entries.remove(0);
+            save(entries);
+            System.out.println("Dropped stash@{0}, whose commits are "
+                    + "missing.");
+            return;
+        }
+        Commit work = readObject(workFile, Commit.class);
+        Commit index = readObject(join(COMMITS, work.merge()), Commit.class);
+        Commit base = readObject(join(COMMITS, work.parentID()),
+                                 Commit.class);
+        Commit curr = getHeadCommit(readObject(HEAD, Branch.class));
+        StagingArea stage = readObject(INDEX, StagingArea.class);
+        if (!stage.isEmpty()) {
+            throw new GitletException("You have uncommitted changes.");
+        }
+        Sparse sparse = Sparse.load();
+        TreeSet<String> names = new TreeSet<>(work.data().keySet());
+        names.addAll(base.data().keySet());
+        for (String name : names) {
+            String currSha = curr.data().get(name);
+            File file = join(CWD, name);
+            if (Objects.equals(base.data().get(name), work.data().get(name))
+                    || !sparse.includes(name)
+                    || (currSha == null ? !file.exists()
+                        : Checkout.holds(file, currSha))) {
+                continue;
+            }
+            throw new GitletException(currSha == null
+                    ? "There is an untracked file in the way; "
+                      + "delete it or add it first."
+                    : "Your local changes would be overwritten; "
+                      + "commit or stash them first.");
+        }
+
+        boolean conflict = false;
+        if (curr.shaCode().equals(base.shaCode())) {
+            restore(base.data(), work.data(), sparse);
+            for (Map.Entry<String, String> entry
+                     : index.data().entrySet()) {
+                if (!entry.getValue().equals(
+                        base.data().get(entry.getKey()))) {
+                    stage.map().put(entry.getKey(), entry.getValue());
+                }
+            }
+            for (String name : base.data().keySet()) {
+                if (!index.data().containsKey(name)) {
+                    stage.removed().add(name);
+                }
+            }
+        } else {
+            conflict = new MergePlan(base, curr, work).apply(stage);
+        }
+        writeObject(INDEX, stage);
+        if (conflict) {
+            System.out.println("Encountered a merge conflict; "
+                    + "the stash entry is kept.");
+            return;
+        }
+        entries.remove(0);
+        save(entries);
+        TreeSet<String> kept = hidden();
+        kept.addAll(Reflog.commits());
+        for (String commitID : new String[] {work.shaCode(), index.shaCode()}) {
+            if (!kept.contains(commitID)) {
+                Journal.delete(join(COMMITS, commitID));
+            }
+        }
+    }
+
+    /** Change the working files that FROM and TO, each mapping file
+     *  names to blob IDs, hold differently from FROM's versions to TO's,
+     *  leaving the others, and those outside SPARSE, alone. */
+    private static void restore(HashMap<String, String> from,
+                                HashMap<String, String> to, Sparse sparse) {
+        TreeSet<String> names = new TreeSet<>(from.keySet());
+        names.addAll(to.keySet());
+        for (String name : names) {
+            String blobSha = to.get(name);
+            File file = join(CWD, name);
+            if (Objects.equals(from.get(name), blobSha)
+                    || !sparse.includes(name)) {
+                continue;
+            }
+            if (blobSha == null) {
+                if (file.exists()) {
+                    restrictedDelete(file);
+                }
+            } else if (!Checkout.holds(file, blobSha)) {
+                readObject(join(OBJECTS, blobSha), Blob.class).writeTo(file);
+            }
+        }
+    }
+
+    /** Replace the entries with the work commits ENTRIES, newest
+     *  first. */
+    private static void save(ArrayList<String> entries) {
+        if (entries.isEmpty()) {
+            if (Journal.active() && Journal.exists(STASH_FILE)) {
+                Journal.delete(STASH_FILE);
+            } else if (!Journal.active()) {
+                STASH_FILE.delete();
+            }
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (String commitID : entries) {
+            text.append(commitID).append('\n');
+        }
+        byte[] contents = text.toString().getBytes(StandardCharsets.UTF_8);
+        if (Journal.active()) {
+            Journal.write(STASH_FILE, contents);
+        } else {
+            atomicWriteContents(STASH_FILE, contents);
+        }
+    }
+
+    /** Length of the commit IDs in entry messages. */
+    private static final int SHORT_LENGTH = 7;
+}
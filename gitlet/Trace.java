@@ -0,0 +1,247 @@
+package gitlet;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counters that show where a command spends its time, kept only when
+ *  Main is given --trace (a summary) or --trace=json (one JSON object
+ *  per line), and reported on the standard error when the command ends,
+ *  or after each command of a batch.  Utils and Journal feed them: time
+ *  spent in each Phase, bytes read and written, objects read and written
+ *  by type, and hits and misses of the Journal read cache.  When tracing
+ *  is off each hook costs one test of a static field.
+ *  @author Andrew Kaplan */
+class Trace {
+
+    /** The parts of a command that are timed. */
+    enum Phase {
+        /** Reading and deserializing objects. */
+        READ_OBJECT("readObject"),
+        /** Computing SHA-1 hashes. */
+        SHA1("sha1"),
+        /** Listing the working directory. */
+        SCAN("scan"),
+        /** Writing files. */
+        WRITE("write");
+
+        /** A Phase reported as NAME. */
+        Phase(String name) {
+            _name = name;
+        }
+
+        /** The name the phase is reported as. */
+        private final String _name;
+    }
+
+    /** Strip the tracing option from the front of the command line ARGS,
+     *  turning tracing on if it is there, and return the rest. */
+    static String[] options(String[] args) {
+        if (args.length == 0 || !args[0].startsWith("--trace")) {
+            return args;
+        }
+        if (args[0].equals("--trace")) {
+            _json = false;
+        } else if (args[0].equals("--trace=json")) {
+            _json = true;
+        } else {
+            throw new GitletException("Incorrect operands.");
+        }
+        _on = true;
+        reset();
+        String[] rest = new String[args.length - 1];
+        System.arraycopy(args, 1, rest, 0, rest.length);
+        return rest;
+    }
+
+    /** Return true if tracing is on. */
+    static boolean on() {
+        return _on;
+    }
+
+    /** Clear the counters and restart the clock. */
+    static void reset() {
+        _start = System.nanoTime();
+        for (int p = 0; p < PHASES; p += 1) {
+            NANOS.set(p, 0);
+            CALLS.set(p, 0);
+        }
+        _bytesRead.reset();
+        _bytesWritten.reset();
+        _cacheHits.reset();
+        _cacheMisses.reset();
+        OBJECTS_READ.clear();
+        OBJECTS_WRITTEN.clear();
+    }
+
+    /** Return the time to pass to end(), or 0 if tracing is off. */
+    static long begin() {
+        return _on ? System.nanoTime() : 0;
+    }
+
+    /** Count one call of PHASE, which began at START. */
+    static void end(Phase phase, long start) {
+        if (_on) {
+            NANOS.addAndGet(phase.ordinal(), System.nanoTime() - start);
+            CALLS.incrementAndGet(phase.ordinal());
+        }
+    }
+
+    /** Count BYTES bytes read from files. */
+    static void read(long bytes) {
+        if (_on) {
+            _bytesRead.add(bytes);
+        }
+    }
+
+    /** Count BYTES bytes written to files. */
+    static void written(long bytes) {
+        if (_on) {
+            _bytesWritten.add(bytes);
+        }
+    }
+
+    /** Count one object of class TYPE read. */
+    static void objectRead(Class<?> type) {
+        if (_on) {
+            count(OBJECTS_READ, type);
+        }
+    }
+
+    /** Count one object of class TYPE written. */
+    static void objectWritten(Class<?> type) {
+        if (_on) {
+            count(OBJECTS_WRITTEN, type);
+        }
+    }
+
+    /** Count a read served from the Journal cache if HIT, else one that
+     *  went to disk. */
+    static void cache(boolean hit) {
+        if (_on) {
+            (hit ? _cacheHits : _cacheMisses).increment();
+        }
+    }
+
+    /** Report the counters for the command ARGS on the standard error,
+     *  if tracing is on. */
+    static void report(String[] args) {
+        if (!_on) {
+            return;
+        }
+        double total = millis(System.nanoTime() - _start);
+        String command = args.length == 0 ? "" : args[0];
+        System.err.print(_json ? json(command, total)
+                         : summary(command, total));
+        System.err.flush();
+    }
+
+    /** Return the human-readable report for COMMAND, which took TOTAL
+     *  milliseconds. */
+    private static String summary(String command, double total) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("trace: %s%n", command));
+        out.append(String.format("  %-15s %10.3f ms%n", "total", total));
+        double timed = 0;
+        for (Phase phase : Phase.values()) {
+            double ms = millis(NANOS.get(phase.ordinal()));
+            timed += ms;
+            out.append(String.format("  %-15s %10.3f ms %8d calls%n",
+                    phase._name, ms, CALLS.get(phase.ordinal())));
+        }
+        out.append(String.format("  %-15s %10.3f ms%n", "other",
+                Math.max(0, total - timed)));
+        out.append(String.format("  %-15s %10d%n", "bytes read",
+                _bytesRead.sum()));
+        out.append(String.format("  %-15s %10d%n", "bytes written",
+                _bytesWritten.sum()));
+        out.append(String.format("  %-15s %s%n", "objects read",
+                counts(OBJECTS_READ, " ", ", ")));
+        out.append(String.format("  %-15s %s%n", "objects written",
+                counts(OBJECTS_WRITTEN, " ", ", ")));
+        out.append(String.format("  %-15s %d hits, %d misses%n", "cache",
+                _cacheHits.sum(), _cacheMisses.sum()));
+        return out.toString();
+    }
+
+    /** Return the report for COMMAND, which took TOTAL milliseconds, as
+     *  one line of JSON. */
+    private static String json(String command, double total) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("{\"command\":\"%s\",\"total_ms\":%.3f,"
+                + "\"phases\":{", command.replace("\"", "\\\""), total));
+        for (Phase phase : Phase.values()) {
+            out.append(String.format("%s\"%s\":{\"ms\":%.3f,\"calls\":%d}",
+                    phase.ordinal() == 0 ? "" : ",", phase._name,
+                    millis(NANOS.get(phase.ordinal())),
+                    CALLS.get(phase.ordinal())));
+        }
+        out.append(String.format("},\"bytes_read\":%d,\"bytes_written\":%d,"
+                + "\"objects_read\":{%s},\"objects_written\":{%s},"
+                + "\"cache_hits\":%d,\"cache_misses\":%d}%n",
+                _bytesRead.sum(), _bytesWritten.sum(),
+                counts(OBJECTS_READ, ":", ","),
+                counts(OBJECTS_WRITTEN, ":", ","),
+                _cacheHits.sum(), _cacheMisses.sum()));
+        return out.toString();
+    }
+
+    /** Return the entries of COUNTS, sorted by type, each as the type and
+     *  its count joined by INFIX (with the type quoted if INFIX is ":"),
+     *  separated by SEPARATOR. */
+    private static String counts(Map<String, LongAdder> counts, String infix,
+                                 String separator) {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, LongAdder> entry
+                 : new TreeMap<>(counts).entrySet()) {
+            if (out.length() > 0) {
+                out.append(separator);
+            }
+            String type = entry.getKey();
+            out.append(infix.equals(":") ? "\"" + type + "\"" : type)
+                .append(infix).append(entry.getValue().sum());
+        }
+        return out.toString();
+    }
+
+    /** Add one to the count of TYPE in COUNTS. */
+    private static void count(Map<String, LongAdder> counts, Class<?> type) {
+        counts.computeIfAbsent(type.getSimpleName(), t -> new LongAdder())
+            .increment();
+    }
+
+    /** Return NANOS nanoseconds in milliseconds. */
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /** Number of phases. */
+    private static final int PHASES = Phase.values().length;
+    /** Nanoseconds spent in each phase. */
+    private static final AtomicLongArray NANOS = new AtomicLongArray(PHASES);
+    /** Calls of each phase. */
+    private static final AtomicLongArray CALLS = new AtomicLongArray(PHASES);
+    /** Objects read, by type. */
+    private static final Map<String, LongAdder> OBJECTS_READ =
+        new ConcurrentHashMap<>();
+    /** Objects written, by type. */
+    private static final Map<String, LongAdder> OBJECTS_WRITTEN =
+        new ConcurrentHashMap<>();
+
+    /** True if tracing is on. */
+    private static volatile boolean _on;
+    /** True if the report is JSON. */
+    private static boolean _json;
+    /** When the command started, in nanoseconds. */
+    private static long _start;
+    /** Bytes read from files. */
+    private static final LongAdder _bytesRead = new LongAdder();
+    /** Bytes written to files. */
+    private static final LongAdder _bytesWritten = new LongAdder();
+    /** Reads served from the Journal cache. */
+    private static final LongAdder _cacheHits = new LongAdder();
+    /** Reads the Journal cache passed to disk. */
+    private static final LongAdder _cacheMisses = new LongAdder();
+}
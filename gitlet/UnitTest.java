@@ -2,10 +2,15 @@ package gitlet;
 import ucb.junit.textui;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.sql.Date;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Random;
 
 import static gitlet.Utils.*;
 import static gitlet.Repository.*;
@@ -32,20 +37,12 @@ public class UnitTest {
     }
 
 
-    /** Blobs get the correct file name. */
-    @Test
-    public void testBlobName() {
-        Blob b = new Blob(join(CWD, "junit.txt"), "junit.txt");
-        File blobFile = join(CWD, b.fileName());
-        assertEquals(blobFile.getName(), b.fileName());
-    }
-
     /** Blobs with different  names
      * but the same contents have the same content. */
     @Test
     public void testBlobContents() {
-        Blob testBlob = new Blob(join(CWD, "junit.txt"), "junit.txt");
-        Blob otherTestBlob = new Blob(join(CWD, "junit.txt"), "junit.txt");
+        Blob testBlob = new Blob(join(CWD, "junit.txt"));
+        Blob otherTestBlob = new Blob(join(CWD, "junit.txt"));
         assertEquals(testBlob.fileContents(),
                 otherTestBlob.fileContents());
     }
@@ -54,24 +51,33 @@ public class UnitTest {
      * but the same contents have the same content. */
     @Test
     public void testSameBlobContents() {
-        Blob junit1 = new Blob(join(CWD, "junit.txt"), "junit.txt");
-        Blob junit2 = new Blob(join(CWD, "junit2.txt"), "junit.txt");
+        Blob junit1 = new Blob(join(CWD, "junit.txt"));
+        Blob junit2 = new Blob(join(CWD, "junit2.txt"));
         assertEquals(junit1.fileContents(), junit2.fileContents());
     }
 
-    /** Continued... but have different ShaCode. */
+    /** Continued... and, being named by contents alone, the same
+     *  ShaCode. */
+    @Test
+    public void testSameBlobShaCode() {
+        Blob b1 = new Blob(join(CWD, "junit.txt"));
+        Blob b2 = new Blob(join(CWD, "junit2.txt"));
+        assertEquals(b1.shaCode(), b2.shaCode());
+    }
+
+    /** Blobs of Files with different contents have different ShaCodes. */
     @Test
     public void testDifferentBlobShaCode() {
-        Blob b1 = new Blob(join(CWD, "junit.txt"), "junit.txt");
-        Blob b2 = new Blob(join(CWD, "junit2.txt"), "junit.txt");
-        assertNotEquals(b1.shaCode(), b2.shaCode());
+        Blob b1 = new Blob(join(CWD, "junit.txt"));
+        Blob b3 = new Blob(join(CWD, "junit3.txt"));
+        assertNotEquals(b1.shaCode(), b3.shaCode());
     }
 
     /** Blobs of Files with different contents have different contents */
     @Test
     public void testDifferentBlobContents() {
-        Blob junit1 = new Blob(join(CWD, "junit.txt"), "junit.txt");
-        Blob junit3 = new Blob(join(CWD, "junit3.txt"), "junit.txt");
+        Blob junit1 = new Blob(join(CWD, "junit.txt"));
+        Blob junit3 = new Blob(join(CWD, "junit3.txt"));
         assertNotEquals(junit1.fileContents(), junit3.fileContents());
     }
 
@@ -97,6 +103,83 @@ public class UnitTest {
         restrictedDelete(junit);
     }
 
+    /** A file copied into another repository, as when it cannot be
+     *  hard-linked there, arrives whole, by way of that repository's own
+     *  tmp directory. */
+    @Test
+    public void testCopyIntoOtherRepository() throws IOException {
+        File repo = Files.createTempDirectory("gitlet-remote").toFile();
+        File objects = join(repo, OBJECTS.getName());
+        objects.mkdir();
+        join(repo, COMMITS.getName()).mkdir();
+        writeContents(join(repo, HEAD.getName()), "head");
+        File source = File.createTempFile("gitlet-source", null);
+        writeContents(source, "copied contents");
+        Remote.copy(source, objects);
+        assertEquals("copied contents",
+                readContentsAsString(join(objects, source.getName())));
+        assertTrue(join(repo, TMP.getName()).isDirectory());
+        assertEquals(0, join(repo, TMP.getName()).list().length);
+    }
+
+    /** Changes to different lines of a file merge without conflict. */
+    @Test
+    public void testLineMergeClean() {
+        LineMerge merged = new LineMerge("a\nb\nc\nd\n",
+                "A\nb\nc\nd\n", "a\nb\nc\nD\n");
+        assertFalse(merged.conflict());
+        assertEquals("A\nb\nc\nD\n", merged.result());
+    }
+
+    /** Different changes to the same line are marked as a conflict, and
+     *  only that line is. */
+    @Test
+    public void testLineMergeConflict() {
+        LineMerge merged = new LineMerge("a\nb\nc\n",
+                "a\nB\nc\n", "a\nX\nc\n");
+        assertTrue(merged.conflict());
+        assertEquals("a\n<<<<<<< HEAD\nB\n=======\nX\n>>>>>>>\nc\n",
+                merged.result());
+    }
+
+    /** Chunks stay within their size limits, and an insertion near the
+     *  start of the data changes only the chunks around it. */
+    @Test
+    public void testChunkerResynchronizes() throws IOException {
+        byte[] data = new byte[1 << 20];
+        new Random(61).nextBytes(data);
+        byte[] edited = new byte[data.length + 5];
+        System.arraycopy(data, 0, edited, 0, 1000);
+        System.arraycopy(data, 1000, edited, 1005, data.length - 1000);
+        ArrayList<String> before = chunkShas(data);
+        ArrayList<String> after = chunkShas(edited);
+        int shared = 0;
+        for (String chunkSha : after) {
+            if (before.contains(chunkSha)) {
+                shared += 1;
+            }
+        }
+        assertTrue(shared >= after.size() - 2);
+    }
+
+    /** Return the SHA-1s of the chunks of DATA, checking their sizes. */
+    private static ArrayList<String> chunkShas(byte[] data)
+        throws IOException {
+        Chunker chunker = new Chunker(new ByteArrayInputStream(data));
+        ArrayList<String> result = new ArrayList<>();
+        int total = 0;
+        for (byte[] chunk = chunker.next(); chunk != null;
+             chunk = chunker.next()) {
+            assertTrue(chunk.length <= Chunker.MAX_SIZE);
+            assertTrue(chunk.length >= Chunker.MIN_SIZE
+                    || total + chunk.length == data.length);
+            total += chunk.length;
+            result.add(sha1((Object) chunk));
+        }
+        assertEquals(data.length, total);
+        return result;
+    }
+
     @Test
     public void mergePrep() {
         Main.main("init");
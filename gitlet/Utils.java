@@ -1,21 +1,27 @@
 package gitlet;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Formatter;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 
@@ -32,27 +38,41 @@ class Utils {
     /** Returns the SHA-1 hash of the concatenation of VALS, which may
      *  be any mixture of byte arrays and Strings. */
     static String sha1(Object... vals) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-1");
-            for (Object val : vals) {
-                if (val instanceof byte[]) {
-                    md.update((byte[]) val);
-                } else if (val instanceof String) {
-                    md.update(((String) val).getBytes(StandardCharsets.UTF_8));
-                } else {
-                    throw new IllegalArgumentException("improper type to sha1");
-                }
+        long start = Trace.begin();
+        MessageDigest md = sha1Digest();
+        for (Object val : vals) {
+            if (val instanceof byte[]) {
+                md.update((byte[]) val);
+            } else if (val instanceof String) {
+                md.update(((String) val).getBytes(StandardCharsets.UTF_8));
+            } else {
+                throw new IllegalArgumentException("improper type to sha1");
             }
-            Formatter result = new Formatter();
-            for (byte b : md.digest()) {
-                result.format("%02x", b);
-            }
-            return result.toString();
+        }
+        String result = hex(md.digest());
+        Trace.end(Trace.Phase.SHA1, start);
+        return result;
+    }
+
+    /** Returns a new SHA-1 MessageDigest, for hashing data that arrives
+     *  piece by piece. */
+    static MessageDigest sha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
         } catch (NoSuchAlgorithmException excp) {
             throw new IllegalArgumentException("System does not support SHA-1");
         }
     }
 
+    /** Returns DIGEST as a hexadecimal numeral. */
+    static String hex(byte[] digest) {
+        Formatter result = new Formatter();
+        for (byte b : digest) {
+            result.format("%02x", b);
+        }
+        return result.toString();
+    }
+
     /** Returns the SHA-1 hash of the concatenation of the strings in
      *  VALS. */
     static String sha1(List<Object> vals) {
@@ -70,6 +90,9 @@ class Utils {
             throw new IllegalArgumentException("not .gitlet working directory");
         }
         if (!file.isDirectory()) {
+            if (Journal.active()) {
+                Journal.save(file);
+            }
             return file.delete();
         } else {
             return false;
@@ -94,7 +117,9 @@ class Utils {
             throw new IllegalArgumentException("must be a normal file");
         }
         try {
-            return Files.readAllBytes(file.toPath());
+            byte[] contents = Files.readAllBytes(file.toPath());
+            Trace.read(contents.length);
+            return contents;
         } catch (IOException excp) {
             throw new IllegalArgumentException(excp.getMessage());
         }
@@ -117,16 +142,20 @@ class Utils {
                 throw
                     new IllegalArgumentException("cannot overwrite directory");
             }
+            if (Journal.active()) {
+                Journal.save(file);
+            }
+            long start = Trace.begin();
             BufferedOutputStream str =
                 new BufferedOutputStream(Files.newOutputStream(file.toPath()));
             for (Object obj : contents) {
-                if (obj instanceof byte[]) {
-                    str.write((byte[]) obj);
-                } else {
-                    str.write(((String) obj).getBytes(StandardCharsets.UTF_8));
-                }
+                byte[] bytes = obj instanceof byte[] ? (byte[]) obj
+                    : ((String) obj).getBytes(StandardCharsets.UTF_8);
+                str.write(bytes);
+                Trace.written(bytes.length);
             }
             str.close();
+            Trace.end(Trace.Phase.WRITE, start);
         } catch (IOException | ClassCastException excp) {
             throw new IllegalArgumentException(excp.getMessage());
         }
@@ -136,11 +165,20 @@ class Utils {
      *  Throws IllegalArgumentException in case of problems. */
     static <T extends Serializable> T readObject(File file,
                                                  Class<T> expectedClass) {
+        long start = Trace.begin();
         try {
             ObjectInputStream in =
-                new ObjectInputStream(new FileInputStream(file));
+                new ObjectInputStream(Journal.active()
+                                      ? new ByteArrayInputStream(
+                                            Journal.read(file))
+                                      : new FileInputStream(file));
             T result = expectedClass.cast(in.readObject());
             in.close();
+            if (!Journal.active()) {
+                Trace.read(file.length());
+            }
+            Trace.objectRead(result.getClass());
+            Trace.end(Trace.Phase.READ_OBJECT, start);
             return result;
         } catch (IOException | ClassCastException
                  | ClassNotFoundException excp) {
@@ -148,11 +186,160 @@ class Utils {
         }
     }
 
-    /** Write OBJ to FILE. */
+    /** Write OBJ to FILE, atomically replacing any previous contents.
+     *  Inside a Journal transaction, the write is held until it commits. */
     static void writeObject(File file, Serializable obj) {
-        writeContents(file, serialize(obj));
+        Trace.objectWritten(obj.getClass());
+        if (Journal.active()) {
+            Journal.write(file, serialize(obj));
+        } else {
+            atomicWriteContents(file, serialize(obj));
+        }
+    }
+
+    /* ATOMIC WRITES */
+
+    /** How hard atomicWriteContents tries to get data onto the disk. */
+    enum Durability {
+        /** Force every file and its directory before returning. */
+        OP,
+        /** Force everything written by a command once, in syncPending. */
+        COMMAND,
+        /** Never force; rely on the operating system. */
+        NONE
     }
 
+    /** Return the configured Durability, taken from the system property
+     *  gitlet.durability or else the environment variable
+     *  GITLET_DURABILITY (one of "op", "command" or "none").  The default
+     *  is OP. */
+    static Durability durability() {
+        if (_durability == null) {
+            String value = System.getProperty("gitlet.durability",
+                    System.getenv("GITLET_DURABILITY"));
+            if (value == null) {
+                _durability = Durability.OP;
+            } else {
+                try {
+                    _durability = Durability.valueOf(value.toUpperCase());
+                } catch (IllegalArgumentException excp) {
+                    throw error("Unknown durability level: %s", value);
+                }
+            }
+        }
+        return _durability;
+    }
+
+    /** As for writeContents, but write CONTENTS to a temporary file on the
+     *  same filesystem as FILE (see tempDir) and rename it over FILE, so
+     *  that readers (and a crash) only ever see the old or the new
+     *  contents of FILE.  Forces the data to disk according to
+     *  durability(). */
+    static void atomicWriteContents(File file, Object... contents) {
+        if (file.isDirectory()) {
+            throw new IllegalArgumentException("cannot overwrite directory");
+        }
+        File dir = file.getAbsoluteFile().getParentFile();
+        File temp = null;
+        long start = Trace.begin();
+        try {
+            temp = File.createTempFile("." + file.getName() + "-", ".tmp",
+                    tempDir(dir));
+            try (FileOutputStream out = new FileOutputStream(temp);
+                 BufferedOutputStream str = new BufferedOutputStream(out)) {
+                for (Object obj : contents) {
+                    byte[] bytes = obj instanceof byte[] ? (byte[]) obj
+                        : ((String) obj).getBytes(StandardCharsets.UTF_8);
+                    str.write(bytes);
+                    Trace.written(bytes.length);
+                }
+                str.flush();
+                if (durability() == Durability.OP) {
+                    out.getFD().sync();
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+        } catch (IOException | ClassCastException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+        switch (durability()) {
+        case OP:
+            force(dir);
+            break;
+        case COMMAND:
+            PENDING_SYNC.add(file);
+            PENDING_SYNC.add(dir);
+            break;
+        default:
+            break;
+        }
+        Trace.end(Trace.Phase.WRITE, start);
+    }
+
+    /** Return the directory in which to create the temporary file for a
+     *  write into DIR.  That is the tmp directory of the repository DIR
+     *  is in, which may be a remote on another filesystem, so that a
+     *  crash never leaves stray files among refs and objects and the
+     *  rename never crosses filesystems.  Files of the working directory
+     *  use Repository.TMP, and DIR itself is used when neither is on
+     *  hand. */
+    private static File tempDir(File dir) {
+        for (File d = dir; d != null; d = d.getParentFile()) {
+            if (new File(d, Repository.HEAD.getName()).isFile()
+                    && new File(d, Repository.COMMITS.getName())
+                       .isDirectory()) {
+                File tmp = new File(d, Repository.TMP.getName());
+                tmp.mkdir();
+                return tmp;
+            }
+        }
+        if (Repository.MAIN_FOLDER.isDirectory()) {
+            Repository.TMP.mkdir();
+            return Repository.TMP;
+        }
+        return dir;
+    }
+
+    /** Force every file and directory written by atomicWriteContents since
+     *  the last call to disk.  Does nothing unless durability() is
+     *  COMMAND. */
+    static void syncPending() {
+        for (File file : PENDING_SYNC) {
+            force(file);
+        }
+        PENDING_SYNC.clear();
+    }
+
+    /** Force the contents of FILE, which may be a directory, to disk.
+     *  Files that no longer exist, and platforms that cannot open a
+     *  directory for syncing, are quietly skipped. */
+    private static void force(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException excp) {
+            if (!file.isDirectory()) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+    }
+
+    /** Files written since the last syncPending. */
+    private static final LinkedHashSet<File> PENDING_SYNC =
+        new LinkedHashSet<>();
+    /** Cached result of durability(). */
+    private static Durability _durability;
+
     /* DIRECTORIES */
 
     /** Filter out all but plain files. */
@@ -216,6 +403,25 @@ class Utils {
         }
     }
 
+    /** Return an object of type T read from the serialized BYTES, casting
+     *  it to EXPECTEDCLASS.  Unlike readObject, never consults the
+     *  Journal, so it may be called from any thread.  Throws
+     *  IllegalArgumentException in case of problems. */
+    static <T extends Serializable> T deserialize(byte[] bytes,
+                                                  Class<T> expectedClass) {
+        long start = Trace.begin();
+        try (ObjectInputStream in =
+                 new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            T result = expectedClass.cast(in.readObject());
+            Trace.objectRead(result.getClass());
+            Trace.end(Trace.Phase.READ_OBJECT, start);
+            return result;
+        } catch (IOException | ClassCastException
+                 | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
 
 
     /* MESSAGES AND ERROR REPORTING */
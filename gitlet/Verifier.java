@@ -0,0 +1,266 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/** Handle calls to fsck from Repository: check that every commit, blob
+ *  and chunk can be read and matches its ID, that commits refer only to
+ *  commits and blobs that exist (parents behind the graft points of a
+ *  shallow repository excepted), and that the branches, HEAD and the
+ *  staging area do too.  The files are checked in parallel on a
+ *  ForkJoinPool, with progress shown on the standard error when running
+ *  at a terminal.  Problems are printed in order, one per line.
+ *  @author Andrew Kaplan */
+class Verifier {
+
+    /** Check the repository and report on it.
+     * @param args include [] */
+    Verifier(String[] args) {
+        if (args.length != 1) {
+            throw new GitletException("Incorrect operands.");
+        }
+        File[] commits = files(COMMITS);
+        File[] blobs = files(OBJECTS);
+        File[] chunks = files(CHUNKS);
+        File[] all = new File[commits.length + blobs.length + chunks.length];
+        System.arraycopy(commits, 0, all, 0, commits.length);
+        System.arraycopy(blobs, 0, all, commits.length, blobs.length);
+        System.arraycopy(chunks, 0, all, commits.length + blobs.length,
+                chunks.length);
+
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            waitFor(pool.submit(new Check(all, 0, all.length)), all.length);
+        } finally {
+            pool.shutdown();
+        }
+        checkRefs();
+
+        ArrayList<String> problems = new ArrayList<>(_problems);
+        Collections.sort(problems);
+        for (String problem : problems) {
+            System.out.println(problem);
+        }
+        if (problems.isEmpty()) {
+            System.out.println("No problems found in " + commits.length
+                    + " commits, " + blobs.length + " blobs and "
+                    + chunks.length + " chunks.");
+        } else {
+            System.out.println(problems.size() + " problems found.");
+        }
+    }
+
+    /** Wait for TASK, which checks TOTAL files, to finish, showing its
+     *  progress if there is a terminal to show it on. */
+    private void waitFor(ForkJoinTask<?> task, int total) {
+        boolean show = System.console() != null;
+        while (true) {
+            try {
+                task.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+                break;
+            } catch (TimeoutException excp) {
+                if (show) {
+                    progress(total, false);
+                }
+            } catch (InterruptedException | ExecutionException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        if (show) {
+            progress(total, true);
+        }
+    }
+
+    /** Show how many of TOTAL files have been checked, ending the line
+     *  if DONE. */
+    private void progress(int total, boolean done) {
+        int checked = _checked.get();
+        int percent = total == 0 ? 100 : (int) (100L * checked / total);
+        System.err.print("\rChecking objects: " + percent + "% ("
+                + checked + "/" + total + ")" + (done ? "\n" : ""));
+        System.err.flush();
+    }
+
+    /** Check the commit, blob or chunk FILE. */
+    private void check(File file) {
+        String name = file.getName();
+        File dir = file.getParentFile();
+        try {
+            byte[] contents = readContents(file);
+            if (dir.equals(COMMITS)) {
+                checkCommit(name, deserialize(contents, Commit.class));
+            } else if (dir.equals(OBJECTS)) {
+                checkBlob(name, deserialize(contents, Blob.class));
+            } else if (!sha1((Object) contents).equals(name)) {
+                problem("chunk", name, "contents do not match its id");
+            }
+        } catch (IllegalArgumentException excp) {
+            problem(dir.equals(COMMITS) ? "commit"
+                    : dir.equals(OBJECTS) ? "blob" : "chunk",
+                    name, "cannot be read");
+        }
+        _checked.incrementAndGet();
+    }
+
+    /** Check COMMIT, read from the file NAME. */
+    private void checkCommit(String name, Commit commit) {
+        if (!name.equals(commit.shaCode())) {
+            problem("commit", name, "holds commit " + commit.shaCode());
+        }
+        for (String parentID : _shallow.parents(commit)) {
+            if (!join(COMMITS, parentID).isFile()) {
+                problem("commit", name, (parentID.equals(commit.parentID())
+                        ? "missing parent " : "missing merge parent ")
+                        + parentID);
+            }
+        }
+        for (String fileName : commit.data().keySet()) {
+            String blobSha = commit.data().get(fileName);
+            if (!join(OBJECTS, blobSha).isFile()) {
+                problem("commit", name, "missing blob " + blobSha
+                        + " for " + fileName);
+            }
+        }
+    }
+
+    /** Check BLOB, read from the file NAME. */
+    private void checkBlob(String name, Blob blob) {
+        if (!name.equals(blob.shaCode())) {
+            problem("blob", name, "holds blob " + blob.shaCode());
+        } else if (!blob.intact()) {
+            problem("blob", name, "contents do not match its id");
+        }
+    }
+
+    /** Check that the branches and stash entries point at commits, that
+     *  HEAD names a branch, and that the staged blobs exist. */
+    private void checkRefs() {
+        for (String branchName : Refs.names()) {
+            try {
+                Branch branch = Refs.read(branchName);
+                if (!join(COMMITS, branch.pointer()).isFile()) {
+                    problem("branch", branchName,
+                            "points to missing commit " + branch.pointer());
+                }
+            } catch (IllegalArgumentException excp) {
+                problem("branch", branchName, "cannot be read");
+            }
+        }
+        try {
+            Branch head = readObject(HEAD, Branch.class);
+            if (!Refs.exists(head.getBranch())) {
+                problem("HEAD", "", "names missing branch "
+                        + head.getBranch());
+            }
+        } catch (IllegalArgumentException excp) {
+            problem("HEAD", "", "cannot be read");
+        }
+        ArrayList<String> entries = Stash.commits();
+        for (int k = 0; k < entries.size(); k += 1) {
+            String name = "stash@{" + k + "}";
+            File work = join(COMMITS, entries.get(k));
+            if (!work.isFile()) {
+                problem("stash", name, "points to missing commit "
+                        + entries.get(k));
+                continue;
+            }
+            try {
+                String indexID = readObject(work, Commit.class).merge();
+                if (!join(COMMITS, indexID).isFile()) {
+                    problem("stash", name, "needs missing commit " + indexID);
+                }
+            } catch (IllegalArgumentException excp) {
+                problem("stash", name, "cannot be read");
+            }
+        }
+        try {
+            StagingArea stage = readObject(INDEX, StagingArea.class);
+            for (String fileName : stage.map().keySet()) {
+                String blobSha = stage.map().get(fileName);
+                if (!join(OBJECTS, blobSha).isFile()) {
+                    problem("INDEX", "", "missing blob " + blobSha
+                            + " for " + fileName);
+                }
+            }
+        } catch (IllegalArgumentException excp) {
+            problem("INDEX", "", "cannot be read");
+        }
+    }
+
+    /** Record that the KIND of object NAME has PROBLEM. */
+    private void problem(String kind, String name, String problem) {
+        _problems.add(kind + (name.isEmpty() ? "" : " " + name) + ": "
+                + problem);
+    }
+
+    /** Return the files of DIR, or none if DIR is missing. */
+    private static File[] files(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    /** Checks FILES[FROM .. TO), splitting the work until it is small. */
+    private class Check extends RecursiveAction {
+
+        /** Pinned, since RecursiveAction is Serializable; Checks are never
+         *  serialized. */
+        private static final long serialVersionUID = 6817758664808680922L;
+
+        /** A Check of FILES[FROM .. TO). */
+        Check(File[] files, int from, int to) {
+            _files = files;
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (_to - _from <= BATCH) {
+                for (int k = _from; k < _to; k += 1) {
+                    check(_files[k]);
+                }
+            } else {
+                int mid = (_from + _to) >>> 1;
+                invokeAll(new Check(_files, _from, mid),
+                        new Check(_files, mid, _to));
+            }
+        }
+
+        /** The files. */
+        private final File[] _files;
+        /** First file to check. */
+        private final int _from;
+        /** End of the files to check. */
+        private final int _to;
+    }
+
+    /** Files one task checks without splitting. */
+    private static final int BATCH = 16;
+    /** Milliseconds between progress reports. */
+    private static final long PROGRESS_INTERVAL = 250;
+
+    /** Problems found, in no particular order. */
+    private final ConcurrentLinkedQueue<String> _problems =
+        new ConcurrentLinkedQueue<>();
+    /** Number of files checked so far. */
+    private final AtomicInteger _checked = new AtomicInteger();
+    /** The graft points, whose parents may be missing. */
+    private final Shallow _shallow = Shallow.load();
+}